@@ -0,0 +1,47 @@
+package com.interpreter;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AstPrinter and ReversePolishNotationAstPrinter printing an already parsed tree to a String.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AstPrinterBenchmark {
+    @Param({"short", "numbers-100", "numbers-10000", "strings-100", "strings-1000", "deep-100", "deep-1000"})
+    public String input;
+
+    private final AstPrinter astPrinter = new AstPrinter();
+    private final ReversePolishNotationAstPrinter rpnPrinter = new ReversePolishNotationAstPrinter();
+    private Expr expression;
+
+    @Setup
+    public void setUp() {
+        expression = Inputs.expression(input);
+    }
+
+    @Benchmark
+    public String astPrinter() {
+        return astPrinter.print(expression);
+    }
+
+    @Benchmark
+    public String reversePolishNotation() {
+        return rpnPrinter.print(expression);
+    }
+}
@@ -0,0 +1,30 @@
+package com.interpreter;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the gc profiler, so every result comes with its allocation rate (gc.alloc.rate.norm is
+ * bytes allocated per operation).
+ *
+ * Usage: java -jar benchmarks.jar [benchmark regex]...
+ * e.g. "ScannerBenchmark" or "InterpreterBenchmark.interpret". For the full JMH command line (other profilers, JSON
+ * output, ...) use java -cp benchmarks.jar org.openjdk.jmh.Main instead.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class);
+
+        if (args.length == 0) {
+            options.include("com\\.interpreter\\..*Benchmark");
+        }
+        for (String pattern : args) {
+            options.include(pattern);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
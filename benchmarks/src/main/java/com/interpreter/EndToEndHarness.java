@@ -0,0 +1,232 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import tool.WorkloadGenerator;
+
+/**
+ * Drives the whole interpreter over a corpus of expressions, one per line, and reports end-to-end throughput.
+ *
+ * The corpus is either a file or generated on the fly by {@link WorkloadGenerator} from a seed, so a run can be
+ * reproduced exactly. Two modes are measured:
+ *
+ *   serial  every line through LoxEngine.eval on one thread, with the expression cache, the way Lox.run evaluates
+ *           each line of the REPL
+ *   batch   the whole file through BatchRunner, the way "jlox --batch" evaluates it, on --threads threads
+ *
+ * With --engine compiled the engine compiles expressions to closures, as with "jlox --compile". Only cached
+ * expressions are compiled, so in batch mode, which doesn't cache, both engines interpret.
+ *
+ * Results are written to stdout as one JSON object per run, so runs of different versions can be collected and
+ * compared by script: expressions/sec, MB/s of source scanned, the peak heap used, and GC count and time.
+ *
+ * Usage: java -cp benchmarks.jar com.interpreter.EndToEndHarness [--corpus <file> | generator options]
+ *            [--mode serial|batch] [--engine interpreted|compiled] [--threads <n>] [--warmup <runs>] [--runs <runs>]
+ *            [--label <text>]
+ *
+ * Generator options are those of tool.WorkloadGenerator: --seed, --count, --max-depth, --operators, --types and
+ * --error-rate.
+ */
+public class EndToEndHarness {
+    public static void main(String[] args) throws IOException {
+        String corpus = null;
+        String mode = "serial";
+        String engine = "interpreted";
+        String label = "";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int warmupRuns = 2;
+        int runs = 5;
+
+        long seed = 42;
+        int count = 100_000;
+        int maxDepth = 4;
+        String operators = null;
+        String types = null;
+        double errorRate = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--corpus" -> corpus = value;
+                case "--mode" -> mode = value;
+                case "--engine" -> engine = value;
+                case "--label" -> label = value;
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--warmup" -> warmupRuns = Integer.parseInt(value);
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--count" -> count = Integer.parseInt(value);
+                case "--max-depth" -> maxDepth = Integer.parseInt(value);
+                case "--operators" -> operators = value;
+                case "--types" -> types = value;
+                case "--error-rate" -> errorRate = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Path path;
+        String corpusName;
+        if (corpus != null) {
+            path = Paths.get(corpus);
+            corpusName = corpus;
+        } else {
+            WorkloadGenerator generator = new WorkloadGenerator(seed, maxDepth,
+                    operators == null ? WorkloadGenerator.defaultOperatorWeights() : WorkloadGenerator.parseWeights(operators),
+                    types == null ? WorkloadGenerator.defaultTypeWeights() : WorkloadGenerator.parseWeights(types),
+                    errorRate);
+            path = Files.createTempFile("jlox-corpus", ".lox");
+            path.toFile().deleteOnExit();
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                text.append(generator.next()).append('\n');
+            }
+            Files.writeString(path, text, Charset.defaultCharset());
+            corpusName = String.format(Locale.ROOT, "generated(seed=%d,count=%d,maxDepth=%d,errorRate=%s)",
+                    seed, count, maxDepth, errorRate);
+        }
+
+        List<String> lines = Files.readAllLines(path, Charset.defaultCharset());
+        long bytes = Files.size(path);
+
+        for (int run = -warmupRuns; run < runs; run++) {
+            Measurement measurement = new Measurement();
+            boolean compiling = engine.equals("compiled");
+            Outcome outcome = mode.equals("batch") ? runBatch(path, threads, compiling) : runSerial(lines, compiling);
+            measurement.stop();
+
+            if (run >= 0) {
+                System.out.println(json(label, corpusName, mode, engine, mode.equals("batch") ? threads : 1, run, outcome,
+                        bytes, measurement));
+            }
+        }
+    }
+
+    private static Outcome runSerial(List<String> lines, boolean compiling) {
+        LoxEngine engine = new LoxEngine(new LoxEngine.Options().compiling(compiling));
+        Outcome outcome = new Outcome();
+
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+
+            LoxEngine.Result result = engine.eval(line);
+            outcome.expressions++;
+            if (result.hadError()) {
+                outcome.syntaxErrors++;
+            } else if (result.hadRuntimeError()) {
+                outcome.runtimeErrors++;
+            }
+        }
+
+        // The exit code runFile would have used for the same errors.
+        outcome.exitCode = outcome.syntaxErrors > 0 ? 65 : outcome.runtimeErrors > 0 ? 70 : 0;
+        return outcome;
+    }
+
+    private static Outcome runBatch(Path path, int threads, boolean compiling) throws IOException {
+        Outcome outcome = new Outcome();
+        // Results aren't interesting here, only how fast they are produced.
+        OutputSink discard = new WriterOutputSink(Writer.nullWriter(), Writer.nullWriter());
+
+        LoxEngine engine = new LoxEngine(new LoxEngine.Options().cacheSize(0).compiling(compiling));
+        BatchRunner batch = new BatchRunner(engine, threads);
+        outcome.exitCode = batch.run(path, discard);
+        outcome.expressions = batch.expressions();
+        outcome.syntaxErrors = batch.syntaxErrors();
+        outcome.runtimeErrors = batch.runtimeErrors();
+        return outcome;
+    }
+
+    private static String json(String label, String corpus, String mode, String engine, int threads, int run,
+                               Outcome outcome, long bytes, Measurement measurement) {
+        double seconds = measurement.nanos / 1e9;
+        return String.format(Locale.ROOT,
+                "{\"label\":\"%s\",\"java\":\"%s\",\"corpus\":\"%s\",\"mode\":\"%s\",\"engine\":\"%s\","
+                        + "\"threads\":%d,\"run\":%d,"
+                        + "\"expressions\":%d,\"syntaxErrors\":%d,\"runtimeErrors\":%d,\"exitCode\":%d,"
+                        + "\"seconds\":%.6f,\"expressionsPerSecond\":%.1f,\"mbPerSecond\":%.3f,"
+                        + "\"peakHeapBytes\":%d,\"gcCount\":%d,\"gcMillis\":%d}",
+                escape(label), escape(System.getProperty("java.version")), escape(corpus), mode, escape(engine),
+                threads, run,
+                outcome.expressions, outcome.syntaxErrors, outcome.runtimeErrors, outcome.exitCode,
+                seconds, outcome.expressions / seconds, bytes / 1e6 / seconds,
+                measurement.peakHeapBytes, measurement.gcCount, measurement.gcMillis);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static class Outcome {
+        long expressions = 0;
+        long syntaxErrors = 0;
+        long runtimeErrors = 0;
+        int exitCode = 0;
+    }
+
+    /**
+     * Wall-clock time, peak heap and GC activity between construction and stop().
+     */
+    private static class Measurement {
+        private final long startNanos;
+        private final long startGcCount;
+        private final long startGcMillis;
+
+        long nanos;
+        long peakHeapBytes;
+        long gcCount;
+        long gcMillis;
+
+        Measurement() {
+            // Start every run from the same, collected heap, and only count the peak reached during the run.
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+
+            startGcCount = gcCount();
+            startGcMillis = gcMillis();
+            startNanos = System.nanoTime();
+        }
+
+        void stop() {
+            nanos = System.nanoTime() - startNanos;
+            gcCount = gcCount() - startGcCount;
+            gcMillis = gcMillis() - startGcMillis;
+
+            peakHeapBytes = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakHeapBytes += pool.getPeakUsage().getUsed();
+                }
+            }
+        }
+
+        private static long gcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+            }
+            return count;
+        }
+
+        private static long gcMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Representative sources for the benchmarks, named "kind-size":
+ *
+ *   short          a typical one-line formula
+ *   numbers-n      n number literals joined by arithmetic operators
+ *   strings-n      n string literals concatenated together
+ *   deep-n         n levels of nested parentheses, "((1) + 1) + 1"
+ *   names-n        n names and string literals from a vocabulary of 50 each, "count == "open" ...". Only scans,
+ *                  the parser doesn't take identifiers yet
+ *
+ * Inputs are generated from a fixed seed, so every run measures the same text.
+ */
+final class Inputs {
+    /**
+     * Fails the benchmark if the input doesn't scan and parse cleanly, rather than measuring the error path.
+     */
+    static final ErrorReporter FAIL = new ErrorReporter() {
+        @Override
+        public void report(int offset, String where, String message) {
+            throw new IllegalStateException("[offset " + offset + "] Error" + where + ": " + message);
+        }
+
+        @Override
+        public void runtimeError(RuntimeError error) {
+            throw error;
+        }
+
+        @Override
+        public boolean hadError() {
+            return false;
+        }
+    };
+
+    private Inputs() {
+    }
+
+    static String source(String name) {
+        if (name.equals("short")) {
+            return "(1.5 + 2) * 3 - -4 / 2 >= 10 == !false";
+        }
+
+        String kind = name.substring(0, name.indexOf('-'));
+        int size = Integer.parseInt(name.substring(name.indexOf('-') + 1));
+        Random random = new Random(42);
+
+        switch (kind) {
+            case "numbers" -> {
+                String[] operators = {" + ", " - ", " * ", " / "};
+                StringBuilder source = new StringBuilder().append(random.nextInt(1000));
+                for (int i = 1; i < size; i++) {
+                    source.append(operators[random.nextInt(operators.length)]);
+                    source.append(random.nextInt(1000)).append('.').append(random.nextInt(100));
+                }
+                return source.toString();
+            }
+            case "strings" -> {
+                StringBuilder source = new StringBuilder("\"start\"");
+                for (int i = 1; i < size; i++) {
+                    source.append(" + \"");
+                    int length = 1 + random.nextInt(16);
+                    for (int j = 0; j < length; j++) {
+                        source.append((char) ('a' + random.nextInt(26)));
+                    }
+                    source.append('"');
+                }
+                return source.toString();
+            }
+            case "names" -> {
+                String[] operators = {" + ", " == ", " != ", " < "};
+                StringBuilder source = new StringBuilder();
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        source.append(operators[random.nextInt(operators.length)]);
+                    }
+                    int word = random.nextInt(50);
+                    if (random.nextBoolean()) {
+                        source.append("name").append(word);
+                    } else {
+                        source.append("\"value").append(word).append('"');
+                    }
+                }
+                return source.toString();
+            }
+            case "deep" -> {
+                return "(".repeat(size) + "1" + ") + 1".repeat(size);
+            }
+            default -> throw new IllegalArgumentException("Unknown input: " + name);
+        }
+    }
+
+    static List<Token> tokens(String name) {
+        return new LoxScanner(source(name), FAIL).scanTokens();
+    }
+
+    static Expr expression(String name) {
+        return new Parser(tokens(name), FAIL).parse();
+    }
+}
@@ -0,0 +1,84 @@
+package com.interpreter;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Interpreter evaluating an already parsed tree against the same tree compiled to closures by ExprCompiler, and the
+ * whole engine going from source text to a value.
+ *
+ * Both evaluators recurse once per level of the tree, and numbers-10000 is a left-leaning chain 10000 levels deep,
+ * more than the default thread stack holds. The fork gets a bigger one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class InterpreterBenchmark {
+    @Param({"short", "numbers-100", "numbers-10000", "strings-100", "strings-1000", "deep-100", "deep-1000"})
+    public String input;
+
+    private final Interpreter interpreter = new Interpreter();
+    private final LoxEngine uncachedEngine = new LoxEngine(0);
+    private final LoxEngine cachedEngine = new LoxEngine();
+    private final LoxEngine compilingEngine = new LoxEngine(new LoxEngine.Options().compiling(true));
+    private String source;
+    private Expr expression;
+    private CompiledExpr compiled;
+
+    @Setup
+    public void setUp() {
+        source = Inputs.source(input);
+        expression = Inputs.expression(input);
+        compiled = ExprCompiler.INSTANCE.compile(expression);
+
+        // The engine reports a stack overflow as an error instead of throwing, which would quietly turn the engine
+        // benchmarks into benchmarks of the error path.
+        LoxEngine.Result result = uncachedEngine.eval(source);
+        if (!result.succeeded()) {
+            throw new IllegalStateException(input + " failed: " + result.errors());
+        }
+    }
+
+    @Benchmark
+    public Object interpret() {
+        return interpreter.interpret(expression);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return compiled.evaluate();
+    }
+
+    @Benchmark
+    public CompiledExpr compile() {
+        return ExprCompiler.INSTANCE.compile(expression);
+    }
+
+    @Benchmark
+    public LoxEngine.Result engineUncached() {
+        return uncachedEngine.eval(source);
+    }
+
+    @Benchmark
+    public LoxEngine.Result engineCached() {
+        return cachedEngine.eval(source);
+    }
+
+    @Benchmark
+    public LoxEngine.Result engineCompiled() {
+        return compilingEngine.eval(source);
+    }
+}
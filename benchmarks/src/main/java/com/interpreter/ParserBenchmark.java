@@ -0,0 +1,41 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parser turning already scanned tokens into an expression tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"short", "numbers-100", "numbers-10000", "strings-100", "strings-1000", "deep-100", "deep-1000"})
+    public String input;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setUp() {
+        tokens = Inputs.tokens(input);
+    }
+
+    @Benchmark
+    public Expr parse() {
+        return new Parser(tokens, Inputs.FAIL).parse();
+    }
+}
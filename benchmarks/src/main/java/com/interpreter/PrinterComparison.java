@@ -0,0 +1,217 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Compares the streaming AST printers with the recursive, String-concatenating versions they replaced, on trees with
+ * a million nodes.
+ *
+ * Three shapes are printed: a balanced tree, a left-leaning chain like "1 + 2 + 3 + ..." produces, and a chain of
+ * nested groupings like "((((1))))". The recursive printers run out of stack on the two deep shapes, which is
+ * reported rather than timed. On the balanced tree both versions must produce the same output.
+ *
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.interpreter.PrinterComparison [nodes] [iterations]
+ */
+public class PrinterComparison {
+    private static final Token PLUS = new Token(TokenType.PLUS, "+", null, 0);
+    private static final Token STAR = new Token(TokenType.STAR, "*", null, 0);
+    private static final Token MINUS = new Token(TokenType.MINUS, "-", null, 0);
+
+    public static void main(String[] args) throws IOException {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        run("balanced", balanced(new Random(42), nodes), iterations);
+        run("left chain", leftChain(nodes), iterations);
+        run("nested groups", nestedGroups(nodes), iterations);
+    }
+
+    private static void run(String shape, Expr tree, int iterations) throws IOException {
+        System.out.println(shape + ":");
+
+        String legacyPrefix = null;
+        String legacyRpn = null;
+        try {
+            legacyPrefix = new RecursiveAstPrinter().print(tree);
+            legacyRpn = new RecursiveRpnPrinter().print(tree);
+        } catch (StackOverflowError e) {
+            System.out.println("  recursive printers: StackOverflowError");
+        }
+
+        if (legacyPrefix != null) {
+            check("AstPrinter", legacyPrefix, new AstPrinter().print(tree));
+            check("ReversePolishNotationAstPrinter", legacyRpn, new ReversePolishNotationAstPrinter().print(tree));
+
+            time("  recursive AstPrinter", iterations, () -> new RecursiveAstPrinter().print(tree).length());
+            time("  recursive RPN printer", iterations, () -> new RecursiveRpnPrinter().print(tree).length());
+        }
+
+        AstPrinter prefix = new AstPrinter();
+        ReversePolishNotationAstPrinter rpn = new ReversePolishNotationAstPrinter();
+        time("  streaming AstPrinter -> String", iterations, () -> prefix.print(tree).length());
+        time("  streaming RPN printer -> String", iterations, () -> rpn.print(tree).length());
+        time("  streaming AstPrinter -> Writer", iterations, () -> {
+            CountingWriter out = new CountingWriter();
+            prefix.print(tree, out);
+            return out.count;
+        });
+        time("  streaming RPN printer -> Writer", iterations, () -> {
+            CountingWriter out = new CountingWriter();
+            rpn.print(tree, out);
+            return out.count;
+        });
+    }
+
+    private interface Task {
+        long run() throws IOException;
+    }
+
+    private static void time(String name, int iterations, Task task) throws IOException {
+        // Warm up so the JIT has compiled the printer before we time it.
+        long chars = 0;
+        for (int i = 0; i < Math.max(1, iterations / 2); i++) {
+            chars += task.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            chars += task.run();
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / iterations;
+
+        System.out.printf("%-40s %10.2f ms/op   (%d chars)%n", name, millis, chars / (iterations + Math.max(1, iterations / 2)));
+    }
+
+    private static void check(String printer, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(printer + " output differs from the recursive printer");
+        }
+    }
+
+    private static Expr balanced(Random random, int nodes) {
+        if (nodes <= 1) {
+            return new Expr.Literal((double) random.nextInt(1000));
+        }
+
+        if (nodes == 2) {
+            return new Expr.Unary(MINUS, balanced(random, 1));
+        }
+
+        int left = (nodes - 1) / 2;
+        Token operator = random.nextBoolean() ? PLUS : STAR;
+        return new Expr.Binary(balanced(random, left), operator, balanced(random, nodes - 1 - left));
+    }
+
+    private static Expr leftChain(int nodes) {
+        Expr expr = new Expr.Literal(0.0);
+        for (int i = 1; i + 2 <= nodes; i += 2) {
+            expr = new Expr.Binary(expr, PLUS, new Expr.Literal((double) i));
+        }
+        return expr;
+    }
+
+    private static Expr nestedGroups(int nodes) {
+        Expr expr = new Expr.Literal("x");
+        for (int i = 1; i < nodes; i++) {
+            expr = new Expr.Grouping(expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Discards what is written, only counting the characters.
+     */
+    private static class CountingWriter extends Writer {
+        long count = 0;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            count += text.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * AstPrinter as it was before it streamed: one String per node.
+     */
+    private static class RecursiveAstPrinter implements Expr.Visitor<String> {
+        String print(Expr expr) {
+            return expr.accept(this);
+        }
+
+        @Override
+        public String visitBinaryExpr(Expr.Binary expr) {
+            return parenthesize(expr.operator.lexeme, expr.left, expr.right);
+        }
+
+        @Override
+        public String visitGroupingExpr(Expr.Grouping expr) {
+            return parenthesize("group", expr.expression);
+        }
+
+        @Override
+        public String visitLiteralExpr(Expr.Literal expr) {
+            return expr.value == null ? "nil" : expr.value.toString();
+        }
+
+        @Override
+        public String visitUnaryExpr(Expr.Unary expr) {
+            return parenthesize(expr.operator.lexeme, expr.right);
+        }
+
+        private String parenthesize(String name, Expr... exprs) {
+            StringBuilder builder = new StringBuilder();
+            builder.append("(").append(name);
+            for (Expr expr : exprs) {
+                builder.append(" ");
+                builder.append(expr.accept(this));
+            }
+            builder.append(")");
+            return builder.toString();
+        }
+    }
+
+    /**
+     * ReversePolishNotationAstPrinter as it was before it streamed.
+     */
+    private static class RecursiveRpnPrinter implements Expr.Visitor<String> {
+        String print(Expr expr) {
+            return expr.accept(this);
+        }
+
+        @Override
+        public String visitBinaryExpr(Expr.Binary expr) {
+            return expr.left.accept(this) + " " + expr.right.accept(this) + " " + expr.operator.lexeme;
+        }
+
+        @Override
+        public String visitGroupingExpr(Expr.Grouping expr) {
+            return " " + expr.expression.accept(this);
+        }
+
+        @Override
+        public String visitLiteralExpr(Expr.Literal expr) {
+            return expr.value == null ? "nil" : expr.value.toString();
+        }
+
+        @Override
+        public String visitUnaryExpr(Expr.Unary expr) {
+            return expr.right.accept(this) + " " + expr.operator.lexeme;
+        }
+    }
+}
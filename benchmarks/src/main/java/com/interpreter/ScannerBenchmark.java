@@ -0,0 +1,42 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LoxScanner turning source text into tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark {
+    @Param({"short", "numbers-100", "numbers-10000", "strings-100", "strings-1000", "deep-100", "deep-1000",
+            "names-10000"})
+    public String input;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Inputs.source(input);
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+        return new LoxScanner(source, Inputs.FAIL).scanTokens();
+    }
+}
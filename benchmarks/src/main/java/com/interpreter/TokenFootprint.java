@@ -0,0 +1,38 @@
+package com.interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How much heap the tokens of a scanned source keep alive, which JMH's allocation rate doesn't show.
+ *
+ * Scans an input from {@link Inputs} once, the way runFile scans a whole script, and measures the heap in use after a
+ * full collection with and without the token list reachable.
+ *
+ * Usage: java -cp benchmarks.jar com.interpreter.TokenFootprint [input]    (default names-100000)
+ */
+public class TokenFootprint {
+    public static void main(String[] args) {
+        String input = args.length > 0 ? args[0] : "names-100000";
+        String source = Inputs.source(input);
+
+        long before = usedAfterGc();
+        List<Token> tokens = new LoxScanner(source, Inputs.FAIL).scanTokens();
+        long after = usedAfterGc();
+
+        long retained = after - before;
+        System.out.printf(Locale.ROOT, "%s: %d chars, %d tokens, %d bytes retained, %.1f bytes/token%n",
+                input, source.length(), tokens.size(), retained, (double) retained / tokens.size());
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // One collection can leave garbage that only became unreachable during it.
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -1,54 +1,100 @@
 package com.interpreter;
 
-public class AstPrinter implements Expr.Visitor<String> {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Prints an expression as nested prefix notation, e.g. "(* (- 123) (group 45.67))".
+ *
+ * The printer streams into a single Appendable instead of building a String per node. The visit methods don't print
+ * anything themselves: they push the pieces of their node (text and child expressions, in reverse order) onto an
+ * explicit stack, and print drains the stack from the top. Deep trees therefore cost heap rather than call stack, and
+ * every character is written exactly once.
+ *
+ * A printer is not thread-safe, use one per thread.
+ */
+public class AstPrinter implements Expr.Visitor<Void> {
+    // What is left to print, top first. Each item is either a String to write as is, or an Expr to expand.
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
 
     String print(Expr expr) {
-        return expr.accept(this);
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(expr, builder);
+        } catch (IOException e) {
+            // A StringBuilder never throws.
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the expression straight to out, e.g. a Writer or an output buffer, without building a String first.
+     */
+    public void print(Expr expr, Appendable out) throws IOException {
+        // Left over if a previous print failed half way through.
+        pending.clear();
+        pending.push(expr);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof Expr) {
+                ((Expr) next).accept(this);
+            } else {
+                out.append((String) next);
+            }
+        }
     }
 
     @Override
-    public String visitBinaryExpr(Expr.Binary expr) {
-        return parenthesize(expr.operator.lexeme, expr.left, expr.right);
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        parenthesize(expr.operator.lexeme, expr.left, expr.right);
+        return null;
     }
 
     @Override
-    public String visitGroupingExpr(Expr.Grouping expr) {
-        return parenthesize("group", expr.expression);
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        parenthesize("group", expr.expression);
+        return null;
     }
 
     @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
+    public Void visitLiteralExpr(Expr.Literal expr) {
         if (expr.value == null) {
-            return "nil";
+            pending.push("nil");
         } else {
-            return expr.value.toString();
+            pending.push(expr.value.toString());
         }
+        return null;
     }
 
     @Override
-    public String visitUnaryExpr(Expr.Unary expr) {
-        return parenthesize(expr.operator.lexeme, expr.right);
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        parenthesize(expr.operator.lexeme, expr.right);
+        return null;
     }
 
-    private String parenthesize(String name, Expr... exprs) {
-        StringBuilder builder = new StringBuilder();
+    /**
+     * Schedules "(name expr1 expr2 ...)". Pushed back to front, so it comes off the stack front to back.
+     */
+    private void parenthesize(String name, Expr... exprs) {
+        pending.push(")");
 
-        builder.append("(").append(name);
-
-        for (Expr expr : exprs) {
-            builder.append(" ");
-            builder.append(expr.accept(this));
+        for (int i = exprs.length - 1; i >= 0; i--) {
+            pending.push(exprs[i]);
+            pending.push(" ");
         }
 
-        builder.append(")");
-        return builder.toString();
+        pending.push(name);
+        pending.push("(");
     }
 
     public static void main(String[] args) {
         // -123 * 45.67
         Expr expression = new Expr.Binary(
-                new Expr.Unary(new Token(TokenType.MINUS, "-", null, 1),
-                        new Expr.Literal(123)), new Token(TokenType.STAR, "*", null, 1), new Expr.Grouping(new Expr.Literal(45.67)));
+                new Expr.Unary(new Token(TokenType.MINUS, "-", null, 0),
+                        new Expr.Literal(123)), new Token(TokenType.STAR, "*", null, 0), new Expr.Grouping(new Expr.Literal(45.67)));
 
         System.out.println(new AstPrinter().print(expression));
     }
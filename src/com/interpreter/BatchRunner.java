@@ -0,0 +1,210 @@
+package com.interpreter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates a file of independent expressions, one per line, on several threads.
+ *
+ * Lines are read in chunks and each chunk is evaluated by a worker thread. The main thread keeps the chunks' futures
+ * in a queue in input order and writes each chunk's output once it (and every chunk before it) is done, so the output
+ * lines up with the input no matter which worker finishes first. The queue is bounded so a fast reader can't pull the
+ * whole file into memory ahead of the workers.
+ *
+ * Results go to the sink's output and errors to its error stream. When those are one stream, e.g. with --output,
+ * each chunk keeps both in one buffer in line order, so every error is next to the results of the lines around it.
+ */
+class BatchRunner {
+    private static final int CHUNK_SIZE = 2048;
+    // How many chunks per thread may be read ahead of the writer.
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private final LoxEngine engine;
+    private final int threads;
+
+    private long syntaxErrors = 0;
+    private long runtimeErrors = 0;
+    private long expressions = 0;
+
+    BatchRunner(LoxEngine engine, int threads) {
+        this.engine = engine;
+        this.threads = threads;
+    }
+
+    /**
+     * Evaluates every non-blank line of the file, writing results and errors to the sink.
+     * Returns the exit code runFile would use for the same errors: 65 for syntax errors, 70 for runtime errors.
+     */
+    int run(Path path, OutputSink sink) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        int maxPending = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+        long startTime = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, Charset.defaultCharset())) {
+            int lineNumber = 0;
+            List<String> lines = new ArrayList<>(CHUNK_SIZE);
+            int firstLine = 1;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lines.isEmpty()) {
+                    firstLine = lineNumber;
+                }
+                lines.add(line);
+
+                if (lines.size() == CHUNK_SIZE) {
+                    pending.add(submit(workers, lines, firstLine, sink.sharesStream()));
+                    lines = new ArrayList<>(CHUNK_SIZE);
+
+                    while (pending.size() >= maxPending) {
+                        write(pending.remove(), sink);
+                    }
+                }
+            }
+
+            if (!lines.isEmpty()) {
+                pending.add(submit(workers, lines, firstLine, sink.sharesStream()));
+            }
+
+            while (!pending.isEmpty()) {
+                write(pending.remove(), sink);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        sink.printErrorln(String.format("Evaluated %d expressions in %.3f s (%.0f expressions/s on %d threads)",
+                expressions, seconds, expressions / seconds, threads));
+        sink.flush();
+
+        if (syntaxErrors > 0) {
+            return 65;
+        }
+
+        if (runtimeErrors > 0) {
+            return 70;
+        }
+
+        return 0;
+    }
+
+    long expressions() {
+        return expressions;
+    }
+
+    /**
+     * How many lines failed to scan or parse.
+     */
+    long syntaxErrors() {
+        return syntaxErrors;
+    }
+
+    /**
+     * How many lines failed to evaluate.
+     */
+    long runtimeErrors() {
+        return runtimeErrors;
+    }
+
+    private Future<Chunk> submit(ExecutorService workers, List<String> lines, int firstLine, boolean inOrder) {
+        return workers.submit(() -> evaluate(lines, firstLine, inOrder));
+    }
+
+    private Chunk evaluate(List<String> lines, int firstLine, boolean inOrder) {
+        Chunk chunk = new Chunk(inOrder);
+        // The lines of a chunk are evaluated one after another on this thread, so they can share a table. It is
+        // thrown away with the chunk, which keeps it from growing with the file.
+        SymbolTable symbols = new SymbolTable();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String source = lines.get(i);
+            if (source.isBlank()) {
+                continue;
+            }
+
+            chunk.expressions++;
+            LoxEngine.Result result;
+            try {
+                result = engine.eval(source, null, symbols);
+            } catch (RuntimeException e) {
+                // A bug in the engine, not in the line. Report it against the line and go on with the rest, the
+                // other lines don't depend on it.
+                chunk.err.append("input line ").append(firstLine + i).append(": Internal error: ").append(e)
+                        .append('\n');
+                chunk.runtimeErrors++;
+                continue;
+            }
+
+            if (result.succeeded()) {
+                chunk.out.append(result.output()).append('\n');
+            }
+
+            Diagnostics errors = result.diagnostics();
+            for (int e = 0; e < errors.size(); e++) {
+                chunk.err.append("input line ").append(firstLine + i).append(": ");
+                errors.formatTo(e, chunk.err);
+                chunk.err.append('\n');
+            }
+
+            if (result.hadError()) {
+                chunk.syntaxErrors++;
+            } else if (result.hadRuntimeError()) {
+                chunk.runtimeErrors++;
+            }
+        }
+
+        return chunk;
+    }
+
+    private void write(Future<Chunk> future, OutputSink sink) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a batch to finish", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch worker failed", e.getCause());
+        }
+
+        sink.print(chunk.out);
+        if (chunk.err != chunk.out && chunk.err.length() > 0) {
+            sink.printError(chunk.err);
+        }
+
+        syntaxErrors += chunk.syntaxErrors;
+        runtimeErrors += chunk.runtimeErrors;
+        expressions += chunk.expressions;
+    }
+
+    /**
+     * The output of one chunk of lines, kept until it is its turn to be written.
+     */
+    private static class Chunk {
+        final StringBuilder out = new StringBuilder();
+        final StringBuilder err;
+        int syntaxErrors = 0;
+        int runtimeErrors = 0;
+        int expressions = 0;
+
+        /**
+         * If inOrder, errors are appended to out, between the results of the lines before and after them.
+         */
+        Chunk(boolean inOrder) {
+            this.err = inOrder ? out : new StringBuilder();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.interpreter;
+
+import java.time.Duration;
+
+/**
+ * Limits how much work a single evaluation may do, so one pathological input can't monopolize a thread.
+ *
+ * A budget bounds the number of expression nodes visited, the number of bytes allocated for string concatenation,
+ * how deeply expressions may nest, and the wall-clock time since the budget was created. The evaluation can also be
+ * cancelled from another thread with {@link #cancel()}, or by interrupting the evaluating thread. Whichever limit is
+ * hit first stops the evaluation with a {@link BudgetExceededError}.
+ *
+ * The nesting limit applies to the parser as well as the interpreter. Both recurse once per level, so without it a
+ * deeply nested input is bounded only by the thread's stack.
+ *
+ * Visits, depth and bytes are checked on every node. The clock, the cancelled flag and the interrupt status are
+ * checked when evaluation starts and then every {@link #CHECK_INTERVAL} visits, so the common path is a counter
+ * increment and a compare.
+ *
+ * A budget belongs to one evaluation at a time. Only {@link #cancel()} may be called from other threads.
+ */
+public class Budget {
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    // Must be a power of two.
+    static final int CHECK_INTERVAL = 1024;
+
+    private final long maxNodeVisits;
+    private final long maxStringBytes;
+    private final long maxDepth;
+    private final long deadline;
+
+    private long nodeVisits = 0;
+    private long depth = 0;
+    private long stringBytes = 0;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param maxNodeVisits  how many expression nodes may be evaluated, or UNLIMITED
+     * @param maxStringBytes how many characters string concatenation may produce in total, or UNLIMITED
+     * @param timeout        how long the evaluation may take from now, or null for no deadline
+     */
+    public Budget(long maxNodeVisits, long maxStringBytes, Duration timeout) {
+        this(maxNodeVisits, maxStringBytes, UNLIMITED, timeout);
+    }
+
+    /**
+     * @param maxNodeVisits  how many expression nodes may be evaluated, or UNLIMITED
+     * @param maxStringBytes how many characters string concatenation may produce in total, or UNLIMITED
+     * @param maxDepth       how many levels deep expressions may nest, or UNLIMITED
+     * @param timeout        how long the evaluation may take from now, or null for no deadline
+     */
+    public Budget(long maxNodeVisits, long maxStringBytes, long maxDepth, Duration timeout) {
+        this.maxNodeVisits = maxNodeVisits;
+        this.maxStringBytes = maxStringBytes;
+        this.maxDepth = maxDepth;
+        this.deadline = timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Stops the evaluation using this budget at its next check. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long nodeVisits() {
+        return nodeVisits;
+    }
+
+    public long stringBytes() {
+        return stringBytes;
+    }
+
+    long maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Checks the clock and the cancelled flag before evaluation starts, so an evaluation that is already out of time
+     * or cancelled doesn't get to do up to CHECK_INTERVAL visits of work first.
+     */
+    void start() {
+        checkInterrupts(null);
+    }
+
+    /**
+     * Charges one visit of the node about to be evaluated, which is one level deeper than its parent. Must be
+     * followed by {@link #exit()} once the node's value is computed.
+     */
+    void enter(Expr expr) {
+        if (++nodeVisits > maxNodeVisits) {
+            throw new BudgetExceededError(tokenOf(expr), BudgetExceededError.Kind.NODE_VISITS,
+                    "Evaluation exceeded its limit of " + maxNodeVisits + " node visits.");
+        }
+
+        if (++depth > maxDepth) {
+            throw tooDeep(tokenOf(expr));
+        }
+
+        if ((nodeVisits & (CHECK_INTERVAL - 1)) == 0) {
+            checkInterrupts(tokenOf(expr));
+        }
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    /**
+     * The error for an expression nesting deeper than maxDepth, at the given token.
+     */
+    BudgetExceededError tooDeep(Token token) {
+        return new BudgetExceededError(token, BudgetExceededError.Kind.NESTING_DEPTH,
+                "Expression exceeded its limit of " + maxDepth + " levels of nesting.");
+    }
+
+    /**
+     * Charges the bytes of a string about to be built by the operator.
+     */
+    void allocate(Token operator, long bytes) {
+        stringBytes += bytes;
+        if (stringBytes > maxStringBytes) {
+            throw new BudgetExceededError(operator, BudgetExceededError.Kind.STRING_BYTES,
+                    "Evaluation exceeded its limit of " + maxStringBytes + " string bytes.");
+        }
+    }
+
+    private void checkInterrupts(Token token) {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new BudgetExceededError(token, BudgetExceededError.Kind.CANCELLED, "Evaluation was cancelled.");
+        }
+
+        if (System.nanoTime() - deadline > 0) {
+            throw new BudgetExceededError(token, BudgetExceededError.Kind.DEADLINE, "Evaluation ran past its deadline.");
+        }
+    }
+
+    private static Token tokenOf(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            return ((Expr.Binary) expr).operator;
+        }
+
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator;
+        }
+
+        return null;
+    }
+}
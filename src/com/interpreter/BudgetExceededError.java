@@ -0,0 +1,33 @@
+package com.interpreter;
+
+/**
+ * Thrown when an evaluation runs out of its {@link Budget} or is cancelled, or when an expression nests too deeply
+ * for the stack even without a budget.
+ *
+ * It is a RuntimeError so it is reported like any other, but callers that care can tell it apart from errors in the
+ * Lox code itself, see {@link LoxEngine.Result#limitExceeded()}. The token is the operator being evaluated when the
+ * budget ran out, or null if there wasn't one.
+ */
+public class BudgetExceededError extends RuntimeError {
+    /**
+     * Which limit was hit.
+     */
+    public enum Kind {
+        NODE_VISITS,
+        STRING_BYTES,
+        NESTING_DEPTH,
+        DEADLINE,
+        CANCELLED
+    }
+
+    private final Kind kind;
+
+    BudgetExceededError(Token token, Kind kind, String message) {
+        super(token, message);
+        this.kind = kind;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+}
@@ -0,0 +1,89 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * An {@link OutputSink} that encodes straight into a direct buffer and writes it to a file channel when it fills up,
+ * skipping the stream and writer layers. Results and errors share the channel, in the order they were written.
+ */
+class ChannelOutputSink implements OutputSink {
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    ChannelOutputSink(FileChannel channel, Charset charset) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public synchronized void print(CharSequence text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        try {
+            for (;;) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void printError(CharSequence text) {
+        print(text);
+    }
+
+    @Override
+    public boolean sharesStream() {
+        return true;
+    }
+
+    @Override
+    public synchronized void println(CharSequence line) {
+        // Holding the lock across both writes keeps other threads from writing between the line and its newline.
+        OutputSink.super.println(line);
+    }
+
+    @Override
+    public synchronized void printErrorln(CharSequence line) {
+        OutputSink.super.printErrorln(line);
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
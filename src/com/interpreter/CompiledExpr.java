@@ -0,0 +1,13 @@
+package com.interpreter;
+
+/**
+ * An expression turned into a tree of closures by {@link ExprCompiler}. Evaluating it is a chain of direct calls, with
+ * no visitor dispatch and no switch on the operator.
+ */
+@FunctionalInterface
+interface CompiledExpr {
+    /**
+     * Evaluates the expression, throwing the same RuntimeErrors the Interpreter would.
+     */
+    Object evaluate();
+}
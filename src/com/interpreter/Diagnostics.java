@@ -0,0 +1,193 @@
+package com.interpreter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the errors of a single evaluation.
+ *
+ * Reporting an error only records its kind, offset, lexeme and message in a few parallel arrays. The messages are
+ * formatted when someone asks for them, so inputs that fail and are thrown away cost little more than inputs that
+ * succeed. That's also when offsets are resolved to lines, and each message gets the offending line of source with a
+ * caret under the error. {@link #flushTo(OutputSink)} writes all of them with a single call.
+ *
+ * Not thread-safe, each evaluation gets its own.
+ */
+final class Diagnostics implements ErrorReporter {
+    // "[line N] Error: message", reported by the scanner.
+    private static final byte ERROR = 0;
+    // "[line N] Error at 'lexeme': message", reported by the parser.
+    private static final byte ERROR_AT = 1;
+    // "[line N] Error at end: message".
+    private static final byte ERROR_AT_END = 2;
+    // "[line N] Error<where>: message", reported through report() directly.
+    private static final byte ERROR_WHERE = 3;
+    // "message\n[line N ]", or just the message without a token.
+    private static final byte RUNTIME = 4;
+
+    private final String source;
+    // The scanner's table, or one built from the source when an error has to be formatted without a scan.
+    private LineTable lines;
+
+    private byte[] kinds = new byte[2];
+    // Offset into the source of each error, -1 for none.
+    private int[] offsets = new int[2];
+    // The lexeme or "where" text, depending on the kind.
+    private String[] texts = new String[2];
+    private String[] messages = new String[2];
+    private int size = 0;
+
+    private boolean hadError = false;
+    private boolean hadRuntimeError = false;
+    // Set when the runtime error was a BudgetExceededError.
+    private BudgetExceededError.Kind limitExceeded = null;
+
+    Diagnostics(String source) {
+        this.source = source;
+    }
+
+    @Override
+    public void lineTable(LineTable lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * The lines of the source, to resolve offsets with.
+     */
+    LineTable lines() {
+        if (lines == null) {
+            lines = LineTable.of(source);
+        }
+        return lines;
+    }
+
+    @Override
+    public void report(int offset, String where, String message) {
+        add(where.isEmpty() ? ERROR : ERROR_WHERE, offset, where, message);
+        hadError = true;
+    }
+
+    @Override
+    public void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            add(ERROR_AT_END, token.offset, null, message);
+        } else {
+            add(ERROR_AT, token.offset, token.lexeme, message);
+        }
+        hadError = true;
+    }
+
+    @Override
+    public void runtimeError(RuntimeError error) {
+        add(RUNTIME, error.token == null ? -1 : error.token.offset, null, error.getMessage());
+        hadRuntimeError = true;
+        if (error instanceof BudgetExceededError) {
+            limitExceeded = ((BudgetExceededError) error).kind();
+        }
+    }
+
+    @Override
+    public boolean hadError() {
+        return hadError;
+    }
+
+    boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    /**
+     * Which limit the evaluation ran into, or null if it didn't run into any.
+     */
+    BudgetExceededError.Kind limitExceeded() {
+        return limitExceeded;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void add(byte kind, int offset, String text, String message) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            texts = Arrays.copyOf(texts, size * 2);
+            messages = Arrays.copyOf(messages, size * 2);
+        }
+
+        kinds[size] = kind;
+        offsets[size] = offset;
+        texts[size] = text;
+        messages[size] = message;
+        size++;
+    }
+
+    /**
+     * Appends the index-th error, formatted the way the command line prints it.
+     */
+    void formatTo(int index, StringBuilder out) {
+        int offset = offsets[index];
+
+        if (kinds[index] == RUNTIME) {
+            out.append(messages[index]);
+            if (offset >= 0) {
+                out.append("\n[line ").append(lines().line(offset)).append(" ]\n");
+                lines().appendSnippet(offset, out);
+            }
+            return;
+        }
+
+        out.append("[line ").append(lines().line(offset)).append("] Error");
+        switch (kinds[index]) {
+            case ERROR_AT -> out.append(" at '").append(texts[index]).append('\'');
+            case ERROR_AT_END -> out.append(" at end");
+            case ERROR_WHERE -> out.append(texts[index]);
+            default -> {
+            }
+        }
+        out.append(": ").append(messages[index]).append('\n');
+        lines().appendSnippet(offset, out);
+    }
+
+    String format(int index) {
+        StringBuilder out = new StringBuilder();
+        formatTo(index, out);
+        return out.toString();
+    }
+
+    /**
+     * The formatted errors, in the order they were reported. Each one is formatted when it is read.
+     */
+    List<String> messages() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return format(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Writes every error to the sink's error stream, one per line, in one call.
+     */
+    void flushTo(OutputSink sink) {
+        if (size == 0) {
+            return;
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            formatTo(i, out);
+            out.append('\n');
+        }
+        sink.printError(out);
+    }
+}
@@ -0,0 +1,40 @@
+package com.interpreter;
+
+/**
+ * Receives the errors found while scanning, parsing and evaluating a piece of source.
+ *
+ * The scanner and parser report through one of these instead of a global, so separate evaluations (possibly on
+ * different threads) each get their own error state.
+ */
+interface ErrorReporter {
+    /**
+     * Reports a syntax error at the given offset into the source.
+     */
+    void report(int offset, String where, String message);
+
+    void runtimeError(RuntimeError error);
+
+    /**
+     * Whether any scan or parse error has been reported.
+     */
+    boolean hadError();
+
+    /**
+     * Called by the scanner before it starts, with the table it fills in with the lines of the source. Reporters that
+     * show lines and columns keep it to resolve offsets with.
+     */
+    default void lineTable(LineTable lines) {
+    }
+
+    default void error(int offset, String message) {
+        report(offset, "", message);
+    }
+
+    default void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            report(token.offset, " at end", message);
+        } else {
+            report(token.offset, " at '" + token.lexeme + "'", message);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.interpreter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe LRU cache from source text to the parsed, and possibly compiled, expression.
+ *
+ * Scanning and parsing are pure functions of the source, so when the same expression string is evaluated over and
+ * over we only need to run the front end once. A hit hands back the cached {@link Program} and skips
+ * {@link LoxScanner}, {@link Parser} and {@link ExprCompiler} entirely.
+ *
+ * Each entry has a weight (1 by default, so the bound is simply an entry count). Once the total weight goes over the
+ * maximum, the least recently used entries are evicted until it fits again.
+ *
+ * Hits don't take a lock. The entries live in a concurrent map, and a hit only notes the entry in a small ring buffer.
+ * The recency order is kept separately, under a lock that only insertions and buffer drains take, and is brought up
+ * to date from the buffer then. When hits come faster than the buffer is drained, some are dropped, so the order is
+ * approximate: an entry that is hit constantly may still be evicted a little early, never one that was hit since.
+ *
+ * When several threads miss on the same key at once only one of them runs the loader, the others wait for its
+ * result instead of all parsing the same text (a "cache stampede").
+ *
+ * Only successful parses are cached. If the loader returns null (the source had errors) nothing is stored, so the
+ * next caller runs the front end again and gets its own error report.
+ */
+class ExprCache {
+    /**
+     * Computes the weight of an entry, e.g. the length of its source text, for caches bounded by size rather than by
+     * entry count.
+     */
+    interface Weigher {
+        long weigh(String source, Program program);
+    }
+
+    private static class Entry {
+        final String key;
+        final Program program;
+        final long weight;
+
+        Entry(String key, Program program, long weight) {
+            this.key = key;
+            this.program = program;
+            this.weight = weight;
+        }
+    }
+
+    // Hits recorded between drains. A power of two, so the write position can be masked.
+    private static final int BUFFER_SIZE = 128;
+
+    private final long maximumWeight;
+    private final Weigher weigher;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // The same entries in access order, so iteration starts at the least recently used. Guarded by policyLock, as is
+    // totalWeight.
+    private final LinkedHashMap<String, Entry> order = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private long totalWeight = 0;
+
+    // Hits not yet applied to the order. Slots are overwritten when the buffer wraps before a drain.
+    private final AtomicReferenceArray<Entry> hitBuffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+    private final AtomicLong hitWrites = new AtomicLong();
+
+    // Loads that are currently running, so concurrent misses on the same key can wait for them.
+    private final ConcurrentMap<String, CompletableFuture<Program>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ExprCache(long maximumWeight, Weigher weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * A cache holding at most maximumSize expressions.
+     */
+    static ExprCache ofSize(int maximumSize) {
+        return new ExprCache(maximumSize, (source, program) -> 1);
+    }
+
+    /**
+     * A cache holding at most maximumChars characters of source text.
+     */
+    static ExprCache ofSourceLength(long maximumChars) {
+        return new ExprCache(maximumChars, (source, program) -> Math.max(1, source.length()));
+    }
+
+    /**
+     * The cache key for a piece of source. Trailing whitespace (e.g. the newline at the end of a file or line) never
+     * changes the meaning of an expression. Leading whitespace is kept because it moves tokens, and token offsets end
+     * up in runtime errors. With only the end stripped, the offsets in a cached expression are valid in every source
+     * that maps to it.
+     */
+    static String normalize(String source) {
+        return source.stripTrailing();
+    }
+
+    /**
+     * Returns the program for the given source, calling loader with the normalized source on a miss.
+     * Returns null if the loader did. If the loader throws, so does this, and so do the calls that were waiting for
+     * it.
+     */
+    Program get(String source, Function<String, Program> loader) {
+        String key = normalize(source);
+
+        Program cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<Program> load = new CompletableFuture<>();
+        CompletableFuture<Program> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            // Someone else is already parsing this source, wait for them instead of doing it again.
+            return join(running);
+        }
+
+        try {
+            // The previous load may have finished between our lookup and registering ours.
+            Program program = lookup(key);
+            if (program == null) {
+                program = loader.apply(key);
+                if (program != null) {
+                    put(key, program);
+                }
+            }
+            load.complete(program);
+            return program;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    private static Program join(CompletableFuture<Program> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Rethrow what the loader threw, as it was thrown to the thread that ran it.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Program lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        long write = hitWrites.getAndIncrement();
+        hitBuffer.lazySet((int) write & (BUFFER_SIZE - 1), entry);
+        // Once per lap around the buffer, drain it if nobody else is.
+        if ((write & (BUFFER_SIZE - 1)) == BUFFER_SIZE - 1 && policyLock.tryLock()) {
+            try {
+                drainHits();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return entry.program;
+    }
+
+    private void put(String key, Program program) {
+        long weight = weigher.weigh(key, program);
+        if (weight > maximumWeight) {
+            // Would evict everything else and still not fit.
+            return;
+        }
+
+        Entry entry = new Entry(key, program, weight);
+        policyLock.lock();
+        try {
+            drainHits();
+
+            entries.put(key, entry);
+            Entry previous = order.put(key, entry);
+            if (previous != null) {
+                totalWeight -= previous.weight;
+            }
+            totalWeight += weight;
+
+            Iterator<Entry> eldest = order.values().iterator();
+            while (totalWeight > maximumWeight && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                entries.remove(evicted.key, evicted);
+                totalWeight -= evicted.weight;
+                evictions.increment();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the entries hit since the last drain to the recently used end of the order. Needs policyLock.
+     */
+    private void drainHits() {
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            Entry entry = hitBuffer.getAndSet(i, null);
+            if (entry != null) {
+                // In an access-ordered map get() is the touch. Keys evicted since the hit aren't found, so nothing
+                // happens for them.
+                order.get(entry.key);
+            }
+        }
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long weight() {
+        policyLock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    long maximumWeight() {
+        return maximumWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "ExprCache[size=" + size() + ", weight=" + weight() + "/" + maximumWeight
+                + ", hits=" + hitCount() + ", misses=" + missCount() + ", evictions=" + evictionCount() + "]";
+    }
+}
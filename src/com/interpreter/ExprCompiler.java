@@ -0,0 +1,132 @@
+package com.interpreter;
+
+import static com.interpreter.Interpreter.add;
+import static com.interpreter.Interpreter.checkNumberOperand;
+import static com.interpreter.Interpreter.checkNumberOperands;
+import static com.interpreter.Interpreter.isEqual;
+import static com.interpreter.Interpreter.isTruthy;
+
+/**
+ * Turns a parsed expression into a {@link CompiledExpr}, once, so it can be evaluated any number of times without
+ * walking the tree.
+ *
+ * Every node becomes a small closure specialized for its operator: the switch on the operator type happens here
+ * instead of on every evaluation, literals are captured as plain values and groupings disappear.
+ *
+ * Nothing is folded. Without variables every Lox expression is constant, so folding would turn the compiled form
+ * into a cached value, which the engine would then have to invalidate once the language grows state.
+ *
+ * Values and errors are exactly the Interpreter's, the operators share its helpers. Compiled expressions don't charge
+ * a {@link Budget} or report to a {@link Profiler}, the engine uses the Interpreter for evaluations that need those.
+ *
+ * The compiler and the expressions it produces hold no mutable state, so both can be shared between threads.
+ */
+final class ExprCompiler implements Expr.Visitor<CompiledExpr> {
+    static final ExprCompiler INSTANCE = new ExprCompiler();
+
+    private ExprCompiler() {
+    }
+
+    CompiledExpr compile(Expr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public CompiledExpr visitLiteralExpr(Expr.Literal expr) {
+        Object value = expr.value;
+        return () -> value;
+    }
+
+    @Override
+    public CompiledExpr visitGroupingExpr(Expr.Grouping expr) {
+        return compile(expr.expression);
+    }
+
+    @Override
+    public CompiledExpr visitUnaryExpr(Expr.Unary expr) {
+        Token operator = expr.operator;
+        CompiledExpr right = compile(expr.right);
+
+        return switch (operator.type) {
+            case BANG -> () -> !isTruthy(right.evaluate());
+            case MINUS -> () -> {
+                Object value = right.evaluate();
+                checkNumberOperand(operator, value);
+                return -(double) value;
+            };
+            default -> () -> {
+                // Unreachable, but evaluate the operand like the Interpreter does.
+                right.evaluate();
+                return null;
+            };
+        };
+    }
+
+    @Override
+    public CompiledExpr visitBinaryExpr(Expr.Binary expr) {
+        Token operator = expr.operator;
+        CompiledExpr left = compile(expr.left);
+        CompiledExpr right = compile(expr.right);
+
+        // Both operands are always evaluated, left first, before the operator checks their types.
+        return switch (operator.type) {
+            case PLUS -> () -> add(operator, left.evaluate(), right.evaluate(), null);
+            case MINUS -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a - (double) b;
+            };
+            case STAR -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a * (double) b;
+            };
+            case SLASH -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a / (double) b;
+            };
+            case GREATER -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a > (double) b;
+            };
+            case GREATER_EQUAL -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a >= (double) b;
+            };
+            case LESS -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a < (double) b;
+            };
+            case LESS_EQUAL -> () -> {
+                Object a = left.evaluate();
+                Object b = right.evaluate();
+                checkNumberOperands(operator, a, b);
+                return (double) a <= (double) b;
+            };
+            case BANG_EQUAL -> () -> {
+                Object a = left.evaluate();
+                return !isEqual(a, right.evaluate());
+            };
+            case EQUAL_EQUAL -> () -> {
+                Object a = left.evaluate();
+                return isEqual(a, right.evaluate());
+            };
+            default -> () -> {
+                // Unreachable, but evaluate the operands like the Interpreter does.
+                left.evaluate();
+                right.evaluate();
+                return null;
+            };
+        };
+    }
+}
@@ -3,17 +3,40 @@ package com.interpreter;
 import static com.interpreter.TokenType.MINUS;
 
 public class Interpreter implements Expr.Visitor<Object> {
+    // Null when evaluation is unbounded.
+    private final Budget budget;
+    // Null when this evaluation isn't being profiled.
+    private final Profiler.Session profile;
 
-    void interpret(Expr expression) {
-        try {
-            Object value = evaluate(expression);
-            System.out.println(stringify(value));
-        } catch (RuntimeError error) {
-            Lox.runtimeError(error);
+    public Interpreter() {
+        this(null, null);
+    }
+
+    /**
+     * An interpreter that charges every evaluation to the given budget and/or reports every node it visits to the
+     * given profiler session, either may be null. Both track a single evaluation, so unlike a plain interpreter this
+     * one must not be shared between threads.
+     */
+    Interpreter(Budget budget, Profiler.Session profile) {
+        this.budget = budget;
+        this.profile = profile;
+    }
+
+    /**
+     * Evaluates the expression and returns its value. Throws a RuntimeError if the expression is ill-typed, or a
+     * BudgetExceededError if it runs out of budget.
+     *
+     * Without a budget the interpreter holds no state of its own, so one instance can be shared by any number of
+     * threads.
+     */
+    Object interpret(Expr expression) {
+        if (budget != null) {
+            budget.start();
         }
+        return evaluate(expression);
     }
 
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) {
             return "nil";
         }
@@ -37,15 +60,7 @@ public class Interpreter implements Expr.Visitor<Object> {
 
       switch (operator.type) {
             case PLUS -> {
-                if (left instanceof Double && right instanceof Double) {
-                    return (Double) left + (Double) right;
-                }
-
-                if (left instanceof String && right instanceof String) {
-                    return (String) left + (String) right;
-                }
-
-                throw new RuntimeError(expr.operator, "Operands must be two numbers or two strings.");
+                return add(operator, left, right, budget);
             }
             case MINUS -> {
                 checkNumberOperands(expr.operator, left, right);
@@ -87,12 +102,10 @@ public class Interpreter implements Expr.Visitor<Object> {
                 return isEqual(left, right);
           }
           default -> {
+                // Unreachable
                 return null;
             }
         }
-
-        // Unreachable
-        return null;
     }
 
     @Override
@@ -121,7 +134,10 @@ public class Interpreter implements Expr.Visitor<Object> {
         return null;
     }
 
-    private boolean isTruthy(Object object) {
+    // isTruthy, isEqual, add and the operand checks are shared with ExprCompiler, so compiled expressions give the
+    // same results and fail with the same errors.
+
+    static boolean isTruthy(Object object) {
         if (object == null) {
             return false;
         }
@@ -133,8 +149,27 @@ public class Interpreter implements Expr.Visitor<Object> {
         return true;
     }
 
-    private boolean isEqual(Object a, Object b) {
-        if (a == null && b == null) {
+    /**
+     * The '+' operator: adds numbers and concatenates strings, charging the new string to the budget if there is one.
+     */
+    static Object add(Token operator, Object left, Object right, Budget budget) {
+        if (left instanceof Double && right instanceof Double) {
+            return (Double) left + (Double) right;
+        }
+
+        if (left instanceof String && right instanceof String) {
+            if (budget != null) {
+                budget.allocate(operator, (long) ((String) left).length() + ((String) right).length());
+            }
+            return (String) left + (String) right;
+        }
+
+        throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+    }
+
+    static boolean isEqual(Object a, Object b) {
+        // Also covers nil == nil, and strings the scanner interned.
+        if (a == b) {
             return true;
         }
 
@@ -146,17 +181,38 @@ public class Interpreter implements Expr.Visitor<Object> {
     }
 
     private Object evaluate(Expr expr) {
-        return expr.accept(this);
+        if (budget == null) {
+            return visit(expr);
+        }
+
+        // No finally needed, a budget is used for one evaluation and an error ends it.
+        budget.enter(expr);
+        Object value = visit(expr);
+        budget.exit();
+        return value;
+    }
+
+    private Object visit(Expr expr) {
+        if (profile == null) {
+            return expr.accept(this);
+        }
+
+        profile.enter(expr);
+        try {
+            return expr.accept(this);
+        } finally {
+            profile.exit();
+        }
     }
 
-    private void checkNumberOperand(Token operator, Object operand) {
+    static void checkNumberOperand(Token operator, Object operand) {
         if (operand instanceof Double) {
             return;
         }
         throw new RuntimeError(operator, "Operand must be a number");
     }
 
-    private void checkNumberOperands(Token operator, Object left, Object right) {
+    static void checkNumberOperands(Token operator, Object left, Object right) {
         if (left instanceof Double && right instanceof Double) {
             return;
         }
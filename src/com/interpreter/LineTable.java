@@ -0,0 +1,102 @@
+package com.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Where each line of a source starts, so positions can be kept as plain offsets and turned into a line and column
+ * only when an error is actually reported.
+ *
+ * The scanner fills the table in as it passes each newline. Lines and columns are counted from 1, the way editors
+ * show them, and the offset just past the end of the source (where the EOF token is) belongs to the last line.
+ */
+final class LineTable {
+    // How much of a line a snippet quotes at most. Longer lines are cut down to the part around the offset.
+    static final int SNIPPET_WIDTH = 80;
+    private static final String ELLIPSIS = "...";
+
+    private final String source;
+    // Offset of the first character of each line, in order. Line 1 always starts at 0.
+    private int[] starts = new int[8];
+    private int count = 1;
+
+    LineTable(String source) {
+        this.source = source;
+    }
+
+    /**
+     * A complete table for source that wasn't scanned, e.g. when the parsed expression came from the cache.
+     */
+    static LineTable of(String source) {
+        LineTable lines = new LineTable(source);
+        for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n', i + 1)) {
+            lines.newline(i);
+        }
+        return lines;
+    }
+
+    /**
+     * Records the newline at the given offset, the next line starts right after it. Newlines have to be recorded in
+     * order.
+     */
+    void newline(int offset) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = offset + 1;
+    }
+
+    int line(int offset) {
+        int index = Arrays.binarySearch(starts, 0, count, offset);
+        // Not a line start itself: binarySearch returns -(insertion point) - 1, and the line is the one before.
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    int column(int offset) {
+        return offset - starts[line(offset) - 1] + 1;
+    }
+
+    /**
+     * The text of a line, without its line break.
+     */
+    String text(int line) {
+        int start = starts[line - 1];
+        int end = line < count ? starts[line] - 1 : source.length();
+        if (end > start && source.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return source.substring(start, end);
+    }
+
+    /**
+     * Appends the line the offset is on with a caret under the offset, indented and numbered like
+     *
+     *     12 | 1 + (2 * )
+     *        |          ^
+     *
+     * Of a line longer than SNIPPET_WIDTH only the part around the offset is quoted, with "..." where it was cut.
+     */
+    void appendSnippet(int offset, StringBuilder out) {
+        int line = line(offset);
+        String number = Integer.toString(line);
+        String text = text(line);
+        int column = Math.min(column(offset) - 1, text.length());
+
+        // Center the window on the column, unless that would run it past either end of the line.
+        int start = Math.max(0, Math.min(column - SNIPPET_WIDTH / 2, text.length() - SNIPPET_WIDTH));
+        int end = Math.min(text.length(), start + SNIPPET_WIDTH);
+        String prefix = start > 0 ? ELLIPSIS : "";
+
+        out.append("    ").append(number).append(" | ").append(prefix).append(text, start, end);
+        if (end < text.length()) {
+            out.append(ELLIPSIS);
+        }
+        out.append('\n');
+
+        out.append("    ").append(" ".repeat(number.length())).append(" | ").append(" ".repeat(prefix.length()));
+        // Tabs stay tabs, so the caret lines up however wide the terminal shows them.
+        for (int i = start; i < column; i++) {
+            out.append(text.charAt(i) == '\t' ? '\t' : ' ');
+        }
+        out.append('^');
+    }
+}
@@ -3,37 +3,324 @@ package com.interpreter;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.SocketAddress;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Lox {
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
+    // Scripts and REPL sessions tend to evaluate the same expressions again and again, so the engine keeps their
+    // parsed form around.
+    private static final int PROFILE_REPORT_LINES = 20;
+    // Long enough for C2 to get through the front end and evaluator, in practice it settles well before.
+    private static final Duration WARMUP_LIMIT = Duration.ofSeconds(10);
+
+    // Set once from the command line options.
+    private static LoxEngine engine;
+    private static OutputSink sink = OutputSink.console();
+    private static boolean echoAst = true;
+    private static boolean instrumented = false;
+    private static boolean compiling = false;
+    private static String profilePath = null;
+    private static int profileSampleEvery = 1;
+    // Bounds the cache by source length instead of by expression count, when set.
+    private static long cacheChars = 0;
+    // Per-request limits in server mode.
+    private static long maxNodes = Budget.UNLIMITED;
+    private static long maxStringBytes = Budget.UNLIMITED;
+    private static long maxDepth = Budget.UNLIMITED;
+    private static Duration timeout = null;
 
-    private static final Interpreter interpreter = new Interpreter();
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        String mode = null;
+        String address = null;
+        String cdsArchive = null;
+        boolean warmup = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> paths = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch" -> mode = "batch";
+                case "--server" -> {
+                    mode = "server";
+                    address = argument(args, ++i);
+                }
+                case "--threads" -> threads = parsePositiveInt(argument(args, ++i));
+                case "--warmup" -> warmup = true;
+                case "--warmup-only" -> mode = "warmup";
+                case "--cds-archive" -> {
+                    mode = "cds";
+                    cdsArchive = argument(args, ++i);
+                }
+                case "--no-ast" -> echoAst = false;
+                case "--metrics" -> instrumented = true;
+                case "--compile" -> compiling = true;
+                case "--cache-chars" -> cacheChars = parsePositiveInt(argument(args, ++i));
+                case "--max-nodes" -> maxNodes = parsePositiveInt(argument(args, ++i));
+                case "--max-string-bytes" -> maxStringBytes = parsePositiveInt(argument(args, ++i));
+                case "--max-depth" -> maxDepth = parsePositiveInt(argument(args, ++i));
+                case "--timeout" -> timeout = Duration.ofMillis(parsePositiveInt(argument(args, ++i)));
+                case "--profile" -> profilePath = argument(args, ++i);
+                case "--profile-sample" -> profileSampleEvery = parsePositiveInt(argument(args, ++i));
+                case "--output" -> sink = OutputSink.toFile(Paths.get(argument(args, ++i)));
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        usage();
+                    }
+                    paths.add(args[i]);
+                }
+            }
+        }
+
+        if (paths.size() > 1) {
+            usage();
+        }
+
+        Profiler profiler = profilePath == null ? null : new Profiler(profileSampleEvery);
+        LoxEngine.Options options = new LoxEngine.Options()
+                .instrumented(instrumented)
+                .profiler(profiler)
+                .compiling(compiling);
+        if ("batch".equals(mode)) {
+            // Batch lines are usually all different, caching them would only add an insertion and an eviction to
+            // each.
+            options.cacheSize(0);
+        } else if (cacheChars > 0) {
+            options.cacheChars(cacheChars);
+        }
+        engine = new LoxEngine(options);
+        if (instrumented) {
+            engine.registerMetrics();
+        }
+
+        if ("cds".equals(mode)) {
+            if (!paths.isEmpty()) {
+                usage();
+            }
+            createCdsArchive(cdsArchive);
+            return;
+        }
+
+        if (warmup && !"warmup".equals(mode)) {
+            warmUp();
+        }
+
+        if ("warmup".equals(mode)) {
+            if (!paths.isEmpty()) {
+                usage();
+            }
+            // Only measuring, or training a CDS archive.
+            warmUp();
+        } else if ("batch".equals(mode)) {
+            if (paths.isEmpty()) {
+                usage();
+            }
+            runBatch(paths.get(0), threads);
+        } else if ("server".equals(mode)) {
+            if (!paths.isEmpty()) {
+                usage();
+            }
+            runServer(address);
+        } else if (paths.size() == 1) {
+            runFile(paths.get(0));
         } else {
             runPrompt();
         }
+
+        finish();
+    }
+
+    private static void usage() {
+        System.out.println("Usage: jlox [options] [script]");
+        System.out.println("       jlox [options] --batch [--threads <n>] <file>");
+        System.out.println("       jlox [options] --server <port>|unix:<path>");
+        System.out.println("       jlox [options] --warmup-only");
+        System.out.println("       jlox [options] --cds-archive <file>");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  --no-ast         don't print the syntax tree before each result");
+        System.out.println("  --output <file>  write results and errors to a file instead of the console");
+        System.out.println("  --compile        compile expressions to closures instead of interpreting the syntax tree");
+        System.out.println("  --metrics        time each phase, publish the numbers over JMX and print them on exit");
+        System.out.println("  --cache-chars <n>  cache parsed expressions up to n characters of source in total,");
+        System.out.println("                   instead of the last " + LoxEngine.Options.DEFAULT_CACHE_SIZE + " expressions");
+        System.out.println("  --profile <file> profile evaluation, print the hot spots on exit and write collapsed");
+        System.out.println("                   stacks for a flame graph to the file");
+        System.out.println("  --profile-sample <n>  only profile one in n evaluations");
+        System.out.println("  --max-nodes <n>  server: fail requests that evaluate more than n expression nodes");
+        System.out.println("  --max-string-bytes <n>  server: fail requests that build more than n characters of strings");
+        System.out.println("  --max-depth <n>  server: fail requests that nest more than n levels deep");
+        System.out.println("  --timeout <ms>   server: fail requests that take longer than ms milliseconds");
+        System.out.println("  --warmup         get the JIT going with a bundled corpus before evaluating anything, and");
+        System.out.println("                   print how long it took");
+        System.out.println();
+        System.out.println("--warmup-only warms up, prints the report and exits. --cds-archive writes a class data sharing");
+        System.out.println("archive of everything a warm-up loads, start later JVMs with -XX:SharedArchiveFile=<file>.");
+        System.exit(64);
+    }
+
+    private static String argument(String[] args, int index) {
+        if (index >= args.length) {
+            usage();
+        }
+        return args[index];
+    }
+
+    /**
+     * Writes out any buffered output before exiting, System.exit skips the rest of main.
+     */
+    private static void exit(int status) throws IOException {
+        finish();
+        System.exit(status);
+    }
+
+    private static void finish() throws IOException {
+        report();
+        sink.close();
+    }
+
+    /**
+     * Prints the metrics and writes the profile, if they were asked for.
+     */
+    private static void report() throws IOException {
+        if (instrumented) {
+            sink.printErrorln(engine.metrics().getSummary());
+        }
+
+        if (profilePath != null) {
+            sink.printError(engine.profiler().report(PROFILE_REPORT_LINES));
+            try (Writer out = Files.newBufferedWriter(Paths.get(profilePath))) {
+                engine.profiler().writeCollapsedStacks(out);
+            }
+        }
+    }
+
+    /**
+     * Runs the bundled warm-up corpus through the engine's code paths, so the first real evaluations don't run in the
+     * bytecode interpreter, and reports how long it took to get fast.
+     */
+    private static void warmUp() {
+        Warmup.Report report = new Warmup(engine).run(WARMUP_LIMIT);
+        sink.printErrorln(report.toString());
+        sink.flush();
+    }
+
+    /**
+     * Runs a warm-up in a child JVM that dumps the classes it loaded to a CDS archive on exit. JVMs started with the
+     * archive map those classes in instead of loading and verifying them again, which cuts startup before the
+     * warm-up even begins.
+     */
+    private static void createCdsArchive(String path) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-XX:ArchiveClassesAtExit=" + path,
+                "-cp", System.getProperty("java.class.path"), Lox.class.getName(), "--warmup-only", "--no-ast"));
+        // Load the same classes the archive will be used with.
+        if (compiling) {
+            command.add("--compile");
+        }
+        if (instrumented) {
+            command.add("--metrics");
+        }
+
+        int status;
+        try {
+            status = new ProcessBuilder(command).inheritIO().start().waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 1;
+        }
+
+        if (status != 0) {
+            sink.printErrorln("Could not create the CDS archive, the training run exited with " + status + ".");
+            exit(1);
+        }
+
+        sink.printErrorln("Wrote " + path + ". Start jlox with java -XX:SharedArchiveFile=" + path + " to use it.");
+        finish();
+    }
+
+    /**
+     * Evaluates a file with one independent expression per line, spread over all cores, and prints one result per
+     * line in input order.
+     */
+    private static void runBatch(String path, int threads) throws IOException {
+        BatchRunner batch = new BatchRunner(engine, threads);
+        int exitCode = batch.run(Paths.get(path), sink);
+
+        if (exitCode != 0) {
+            exit(exitCode);
+        }
+    }
+
+    /**
+     * Serves evaluation requests over a local socket until killed. See LoxServer for the protocol.
+     */
+    private static void runServer(String address) throws IOException {
+        SocketAddress socketAddress;
+        try {
+            socketAddress = LoxServer.parseAddress(address);
+        } catch (IllegalArgumentException e) {
+            usage();
+            return;
+        }
+
+        Supplier<Budget> budgets = () -> null;
+        if (maxNodes != Budget.UNLIMITED || maxStringBytes != Budget.UNLIMITED || maxDepth != Budget.UNLIMITED
+                || timeout != null) {
+            budgets = () -> new Budget(maxNodes, maxStringBytes, maxDepth, timeout);
+        }
+        LoxServer server = new LoxServer(engine, sink, budgets);
+
+        // The server only stops when it is killed, so this is the only chance to print its statistics, the metrics
+        // and the profile. One hook for all of them, hooks run concurrently and in no particular order.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            sink.printErrorln(server.stats());
+            try {
+                report();
+            } catch (IOException e) {
+                sink.printErrorln("Could not write the profile: " + e.getMessage());
+            }
+            sink.flush();
+        }));
+
+        try {
+            server.serve(socketAddress);
+        } catch (IOException e) {
+            sink.printErrorln("Could not serve on " + address + ": " + e.getMessage());
+            exit(1);
+        }
+    }
+
+    private static int parsePositiveInt(String text) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the usage message.
+        }
+
+        usage();
+        return 0;
     }
 
     private static void runFile(String path) throws IOException {
         byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        LoxEngine.Result result = run(new String(bytes, Charset.defaultCharset()), null);
 
-        if (hadError) {
-            System.exit(65);
+        if (result.hadError()) {
+            exit(65);
         }
 
-        if (hadRuntimeError) {
-            System.exit(70);
+        if (result.hadRuntimeError()) {
+            exit(70);
         }
 
     }
@@ -41,57 +328,40 @@ public class Lox {
     private static void runPrompt() throws IOException {
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
+        // Names and strings typed again later in the session are interned once.
+        SymbolTable symbols = new SymbolTable();
 
         for (;;) {
-            System.out.print(">");
+            sink.print(">");
+            sink.flush();
             String line = reader.readLine();
             if (line == null) {
                 break;
             } else {
-                run(line);
-                hadError = false;
+                // Errors only affect the line they were made on, the next one starts fresh.
+                run(line, symbols);
+                sink.flush();
+                if (symbols.full()) {
+                    symbols = new SymbolTable();
+                }
             }
         }
     }
 
-    private static void run(String source) {
-        LoxScanner scanner = new LoxScanner(source);
-        List<Token> tokens = scanner.scanTokens();
+    private static LoxEngine.Result run(String source, SymbolTable symbols) {
+        LoxEngine.Result result = engine.eval(source, null, symbols);
 
-        Parser parser = new Parser(tokens);
-        Expr expression = parser.parse();
-
-        if (hadError) {
-            return;
+        if (echoAst && result.expression() != null) {
+            sink.println(new AstPrinter().print(result.expression()));
         }
 
-        System.out.println(new AstPrinter().print(expression));
-        interpreter.interpret(expression);
-
-    }
-
-    static void error(int line, String message) {
-        report(line, "", message);
-
-    }
-
-    static void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
+        if (result.succeeded()) {
+            sink.println(result.output());
         }
-    }
 
-    static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() + "\n[line " + error.token.line + " ]");
-        hadRuntimeError = true;
-    }
+        result.diagnostics().flushTo(sink);
 
-    private static void report(int line, String where, String message) {
-        // TODO: Improve error printing to print the actual line. Refer to page 42 for example
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
+        return result;
     }
 
 }
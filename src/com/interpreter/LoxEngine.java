@@ -0,0 +1,342 @@
+package com.interpreter;
+
+import java.util.List;
+
+/**
+ * An embeddable Lox evaluator.
+ *
+ * Every call to {@link #eval(String)} gets its own error state and returns the value together with any errors as a
+ * {@link Result}, nothing is printed and nothing global is touched. The engine only shares immutable or thread-safe
+ * parts between calls (the interpreter and the expression cache), so a single instance can be called concurrently
+ * from as many threads as needed.
+ *
+ * A compiling engine also turns each parsed expression into closures once (see {@link ExprCompiler}) and evaluates
+ * those instead of walking the tree. Only cached expressions are compiled, an engine without a cache interprets
+ * everything. Evaluations with a budget or a profiler always go through the Interpreter.
+ */
+public class LoxEngine {
+    private final Interpreter interpreter = new Interpreter();
+    private final ExprCache cache;
+    // Null when instrumentation is off.
+    private final Metrics metrics;
+    // Null when profiling is off.
+    private final Profiler profiler;
+    private final boolean compiling;
+
+    /**
+     * An engine with the default {@link Options}: a cache of {@value Options#DEFAULT_CACHE_SIZE} expressions.
+     */
+    public LoxEngine() {
+        this(new Options());
+    }
+
+    /**
+     * @param cacheSize how many parsed expressions to keep around, 0 to always run the scanner and parser
+     */
+    public LoxEngine(int cacheSize) {
+        this(new Options().cacheSize(cacheSize));
+    }
+
+    public LoxEngine(Options options) {
+        this.cache = options.cache();
+        this.metrics = options.instrumented ? new Metrics(cache) : null;
+        this.profiler = options.profiler;
+        this.compiling = options.compiling;
+    }
+
+    public Result eval(String source) {
+        return eval(source, null);
+    }
+
+    /**
+     * Evaluates the source within the given budget, or without limits if budget is null. Running out of budget is
+     * reported as a runtime error, and so is an expression nested too deeply for the stack, see
+     * {@link Result#limitExceeded()}. Use a new budget for every call.
+     */
+    public Result eval(String source, Budget budget) {
+        return eval(source, budget, null);
+    }
+
+    /**
+     * Evaluates like {@link #eval(String, Budget)}, interning the source's names and strings in the given symbol
+     * table. Callers that evaluate many sources on one thread pass the same table, so the strings they share are
+     * kept once. With null, each source gets a table of its own.
+     */
+    Result eval(String source, Budget budget, SymbolTable symbols) {
+        Diagnostics errors = new Diagnostics(source);
+        try {
+            return evaluate(source, budget, symbols, errors);
+        } catch (StackOverflowError e) {
+            // The parser and the evaluators recurse once per level of nesting, and a long chain of binary operators
+            // nests as deep as it is long. The stack has unwound by now, so the thread is fine to carry on.
+            errors.runtimeError(new BudgetExceededError(null, BudgetExceededError.Kind.NESTING_DEPTH,
+                    "Expression is nested too deeply."));
+            return new Result(null, null, errors);
+        }
+    }
+
+    private Result evaluate(String source, Budget budget, SymbolTable symbols, Diagnostics errors) {
+        Program program;
+        try {
+            program = load(source, errors, budget, symbols);
+        } catch (BudgetExceededError error) {
+            // Nested deeper than the budget allows.
+            errors.runtimeError(error);
+            return new Result(null, null, errors);
+        }
+        if (program == null) {
+            return new Result(null, null, errors);
+        }
+        Expr expression = program.expression;
+
+        PhaseEvents.Evaluate event = metrics == null ? null : metrics.beginEvaluate();
+        try {
+            // The shared interpreter is stateless. Budgets and profiles track this call only, so they get their own.
+            Profiler.Session profile = profiler == null ? null : profiler.begin(errors::lines);
+            Object value;
+            if (budget == null && profile == null) {
+                value = program.compiled != null ? program.compiled.evaluate() : interpreter.interpret(expression);
+            } else {
+                value = new Interpreter(budget, profile).interpret(expression);
+            }
+            return new Result(expression, value, errors);
+        } catch (RuntimeError error) {
+            errors.runtimeError(error);
+            return new Result(expression, null, errors);
+        } finally {
+            if (event != null) {
+                metrics.endEvaluate(event, !errors.hadRuntimeError());
+            }
+        }
+    }
+
+    /**
+     * Scans, parses and, if the engine compiles, compiles the source, reporting any errors to the reporter. Returns
+     * null if there were errors. Interns into symbols, or a new table if that is null.
+     *
+     * Without a cache the parser enforces the budget's nesting limit, which may be null, and throws a
+     * BudgetExceededError when the source goes over it. Cached programs are parsed without a budget, because other
+     * callers with other budgets, or none, wait for the same load. Their depth is checked by the Interpreter, which
+     * every evaluation with a budget goes through.
+     */
+    Program load(String source, ErrorReporter reporter, Budget budget, SymbolTable symbols) {
+        if (cache == null) {
+            return parse(source, reporter, budget, symbols);
+        }
+
+        // The key only names the entry. Parse what the caller passed, so errors at the end of the source are
+        // reported where they are, cache or no cache.
+        Program program = cache.get(source, key -> parse(source, reporter, null, symbols));
+        if (program == null && !reporter.hadError()) {
+            // Another thread parsed the same broken source while we waited. Errors aren't cached, so run the front
+            // end again to get them reported to our caller as well.
+            return parse(source, reporter, budget, symbols);
+        }
+        return program;
+    }
+
+    private Program parse(String source, ErrorReporter reporter, Budget budget, SymbolTable symbols) {
+        PhaseEvents.Scan scanEvent = metrics == null ? null : metrics.beginScan();
+        LoxScanner scanner = new LoxScanner(source, reporter, symbols != null ? symbols : new SymbolTable());
+        List<Token> tokens = scanner.scanTokens();
+        if (scanEvent != null) {
+            metrics.endScan(scanEvent, source.length(), tokens.size());
+        }
+
+        PhaseEvents.Parse parseEvent = metrics == null ? null : metrics.beginParse();
+        Parser parser = new Parser(tokens, reporter, budget);
+        Expr expression = parser.parse();
+        if (parseEvent != null) {
+            metrics.endParse(parseEvent, tokens.size(), expression);
+        }
+
+        // Only hand back expressions that came through the front end cleanly, so errors are never cached.
+        if (reporter.hadError()) {
+            return null;
+        }
+        // Compiling costs about as much as one interpreted evaluation, it only pays off for a program that is cached
+        // and evaluated again.
+        boolean compile = compiling && cache != null;
+        return new Program(expression, compile ? ExprCompiler.INSTANCE.compile(expression) : null);
+    }
+
+    boolean compiling() {
+        return compiling;
+    }
+
+    ExprCache cache() {
+        return cache;
+    }
+
+    /**
+     * Per-phase counts and timings and the cache's hit, miss and eviction counts, or null if the engine isn't
+     * instrumented. Cache hits skip the scan and parse phases, so those are only counted for misses.
+     */
+    public MetricsMXBean metrics() {
+        return metrics;
+    }
+
+    /**
+     * Publishes {@link #metrics()} over JMX as "com.interpreter:type=Metrics", e.g. for jconsole. Only one engine per
+     * JVM can be registered.
+     *
+     * @throws IllegalStateException if the engine isn't instrumented, or registration failed
+     */
+    public void registerMetrics() {
+        if (metrics == null) {
+            throw new IllegalStateException("The engine isn't instrumented");
+        }
+        metrics.register();
+    }
+
+    /**
+     * The profiler the engine was created with, or null.
+     */
+    public Profiler profiler() {
+        return profiler;
+    }
+
+    /**
+     * How to set up an engine, e.g. {@code new LoxEngine(new LoxEngine.Options().cacheSize(0).compiling(true))}.
+     * Anything not set keeps its default: a cache of {@value #DEFAULT_CACHE_SIZE} expressions, no instrumentation, no
+     * profiler, and interpreting rather than compiling.
+     */
+    public static final class Options {
+        public static final int DEFAULT_CACHE_SIZE = 1024;
+
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        // Bounds the cache by source length instead of by cacheSize, when set.
+        private long cacheChars = 0;
+        private boolean instrumented = false;
+        private Profiler profiler = null;
+        private boolean compiling = false;
+
+        /**
+         * How many parsed expressions to keep around, 0 to always run the scanner and parser.
+         */
+        public Options cacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            this.cacheChars = 0;
+            return this;
+        }
+
+        /**
+         * Keeps parsed expressions up to this many characters of source in all, rather than a number of them.
+         * 0 to always run the scanner and parser.
+         */
+        public Options cacheChars(long cacheChars) {
+            this.cacheChars = cacheChars;
+            this.cacheSize = 0;
+            return this;
+        }
+
+        /**
+         * Whether to time each phase and emit Flight Recorder events for it, see {@link LoxEngine#metrics()}.
+         */
+        public Options instrumented(boolean instrumented) {
+            this.instrumented = instrumented;
+            return this;
+        }
+
+        /**
+         * Where to record per-node evaluation times, or null not to profile.
+         */
+        public Options profiler(Profiler profiler) {
+            this.profiler = profiler;
+            return this;
+        }
+
+        /**
+         * Whether to compile expressions to closures rather than interpret them. Pays off when expressions are cached
+         * and evaluated many times, so it has no effect without a cache.
+         */
+        public Options compiling(boolean compiling) {
+            this.compiling = compiling;
+            return this;
+        }
+
+        private ExprCache cache() {
+            if (cacheChars > 0) {
+                return ExprCache.ofSourceLength(cacheChars);
+            }
+            return cacheSize > 0 ? ExprCache.ofSize(cacheSize) : null;
+        }
+    }
+
+    /**
+     * The outcome of evaluating one piece of source.
+     */
+    public static class Result {
+        private final Expr expression;
+        private final Object value;
+        private final Diagnostics diagnostics;
+
+        private Result(Expr expression, Object value, Diagnostics diagnostics) {
+            this.expression = expression;
+            this.value = value;
+            this.diagnostics = diagnostics;
+        }
+
+        /**
+         * The parsed expression, or null if the source had syntax errors.
+         */
+        Expr expression() {
+            return expression;
+        }
+
+        /**
+         * The value of the expression, or null if it is nil or evaluation failed.
+         */
+        public Object value() {
+            return value;
+        }
+
+        /**
+         * The value as Lox prints it, e.g. "nil" or "3".
+         */
+        public String output() {
+            return Interpreter.stringify(value);
+        }
+
+        /**
+         * The error messages, formatted the way the command line prints them.
+         */
+        public List<String> errors() {
+            return diagnostics.messages();
+        }
+
+        /**
+         * The errors as they were recorded, to write out in one go or format into a buffer without the list.
+         */
+        Diagnostics diagnostics() {
+            return diagnostics;
+        }
+
+        /**
+         * Whether the source failed to scan or parse.
+         */
+        public boolean hadError() {
+            return diagnostics.hadError();
+        }
+
+        /**
+         * Whether evaluation failed.
+         */
+        public boolean hadRuntimeError() {
+            return diagnostics.hadRuntimeError();
+        }
+
+        /**
+         * Which limit of the budget the evaluation ran into, or null if it failed for another reason or didn't
+         * fail. Nesting too deeply for the stack counts as {@link BudgetExceededError.Kind#NESTING_DEPTH} with or
+         * without a budget.
+         */
+        public BudgetExceededError.Kind limitExceeded() {
+            return diagnostics.limitExceeded();
+        }
+
+        public boolean succeeded() {
+            return !hadError() && !hadRuntimeError();
+        }
+    }
+}
@@ -1,44 +1,47 @@
 package com.interpreter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static com.interpreter.TokenType.*;
 
 public class LoxScanner {
     private final String source;
+    private final ErrorReporter reporter;
     private final List<Token> tokens = new ArrayList<>();
-    private static final Map<String, TokenType> keywords;
+    // Interns names and strings, and knows the keywords.
+    private final SymbolTable symbols;
+    // The lexeme of every token type that is always spelled the same, by ordinal, so they don't need a substring.
+    private static final String[] FIXED_LEXEMES = new String[TokenType.values().length];
     static {
-        keywords = new HashMap<>();
-        keywords.put("and", AND);
-        keywords.put("class", CLASS);
-        keywords.put("else", ELSE);
-        keywords.put("false", FALSE);
-        keywords.put("for", FOR);
-        keywords.put("fun", FUN);
-        keywords.put("if", IF);
-        keywords.put("nil", NIL);
-        keywords.put("or", OR);
-        keywords.put("print", PRINT);
-        keywords.put("return", RETURN);
-        keywords.put("super", SUPER);
-        keywords.put("this", THIS);
-        keywords.put("true", TRUE);
-        keywords.put("var", VAR);
-        keywords.put("while", WHILE);
+        String[] lexemes = {"(", ")", "{", "}", ",", ".", "-", "+", ";", "*", "/", "!", "!=", "=", "==", "<", "<=",
+                ">", ">="};
+        TokenType[] types = {LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE, COMMA, DOT, MINUS, PLUS, SEMICOLON,
+                STAR, SLASH, BANG, BANG_EQUAL, ASSIGNMENT_EQUAL, EQUAL_EQUAL, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL};
+        for (int i = 0; i < types.length; i++) {
+            FIXED_LEXEMES[types[i].ordinal()] = lexemes[i];
+        }
     }
 
     // Start and current are offsets to index into the source code we're reading
     private int start = 0;
     private int current = 0;
-    // Track the line we're at in the code for reporting errors
-    private int line = 1;
+    // Where each line starts, for reporting errors
+    private final LineTable lines;
+
+    public LoxScanner(String source, ErrorReporter reporter) {
+        this(source, reporter, new SymbolTable());
+    }
 
-    public LoxScanner(String source) {
+    /**
+     * Scans with the given symbol table, so the same names and strings in several sources share one instance.
+     */
+    LoxScanner(String source, ErrorReporter reporter, SymbolTable symbols) {
         this.source = source;
+        this.reporter = reporter;
+        this.symbols = symbols;
+        this.lines = new LineTable(source);
+        reporter.lineTable(lines);
     }
 
     List<Token> scanTokens() {
@@ -47,7 +50,7 @@ public class LoxScanner {
             scanToken();
         }
 
-        tokens.add(new Token(EOF, "", null, line));
+        tokens.add(new Token(EOF, "", null, source.length()));
         return tokens;
     }
 
@@ -92,9 +95,9 @@ public class LoxScanner {
             case '\r':
             case '\t':
                 break;
-            // Increment line number on new lines
+            // Record where the next line starts
             case '\n':
-                line++;
+                lines.newline(start);
                 break;
             case '"':
                 string();
@@ -106,7 +109,7 @@ public class LoxScanner {
                     identifier();
                 }
                 else {
-                    Lox.error(line, "Unexpected character."); break;
+                    reporter.error(start, "Unexpected character."); break;
                 }
         }
     }
@@ -118,16 +121,15 @@ public class LoxScanner {
             advance();
         }
 
-        String text = source.substring(start, current);
-        TokenType type = keywords.get(text);
+        int id = symbols.intern(source, start, current);
+        TokenType type = symbols.keyword(id);
 
         if (type == null) {
-            // If the type is not a reserved keyword (not found in the map) it is an identifier
-            addToken(IDENTIFIER);
-        } else {
-            // Add the reserved word as the type
-            addToken(type);
+            // If the type is not a reserved keyword it is an identifier
+            type = IDENTIFIER;
         }
+        String lexeme = id == SymbolTable.NOT_INTERNED ? source.substring(start, current) : symbols.string(id);
+        tokens.add(new Token(type, lexeme, null, start));
     }
 
     private boolean isDigit(char c) {
@@ -171,20 +173,21 @@ public class LoxScanner {
     private void string() {
         while (peek() != '"' && !isAtEnd()) {
             if (peek() == '\n') {
-                line++;
+                lines.newline(current);
             }
             advance();
         }
 
         if (isAtEnd()) {
-            Lox.error(line, "Unterminated String.");
+            // Point at the opening quote, the end of the source says little about which string wasn't closed.
+            reporter.error(start, "Unterminated String.");
             return;
         }
 
         advance(); // The closing quotation mark
 
         // Trim the surrounding quotes.
-        String value = source.substring(start + 1, current - 1);
+        String value = symbols.string(source, start + 1, current - 1);
         addToken(STRING, value);
     }
 
@@ -226,7 +229,11 @@ public class LoxScanner {
     }
 
     private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        String text = FIXED_LEXEMES[type.ordinal()];
+        if (text == null) {
+            // Numbers are seldom repeated enough to be worth interning, string literals often are.
+            text = type == STRING ? symbols.string(source, start, current) : source.substring(start, current);
+        }
+        tokens.add(new Token(type, text, literal, start));
     }
 }
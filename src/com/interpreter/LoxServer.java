@@ -0,0 +1,257 @@
+package com.interpreter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A long-lived evaluation server, so clients pay for JVM startup and JIT warm-up once instead of on every call.
+ *
+ * The server listens on a loopback TCP port or a Unix domain socket. Each connection is served by its own thread
+ * (a virtual thread when the JDK has them), and every connection evaluates with the same shared {@link LoxEngine}.
+ *
+ * The protocol is length-prefixed frames over the byte stream. A request is:
+ *
+ *   int32 length, big-endian
+ *   length bytes of UTF-8 source
+ *
+ * and each request gets exactly one response:
+ *
+ *   byte  status: 0 on success, 65 for a syntax error, 70 for a runtime error (the same codes jlox exits with)
+ *         or when the server failed to evaluate the request, 75 when the request went over one of its limits
+ *   int32 length, big-endian
+ *   length bytes of UTF-8: the printed value, or the error messages separated by newlines
+ *
+ * A request with length 0 returns the server statistics (requests/sec and latency percentiles) instead.
+ *
+ * Each request may be evaluated within a {@link Budget} of its own, so one expensive request can't hold a connection
+ * thread forever. A request that fails in any way gets an error response and the connection stays open for the next.
+ *
+ * Clients may pipeline: send any number of requests before reading the responses, which always come back in request
+ * order. Responses are only flushed once there is no further request already waiting in the input buffer, so a
+ * pipelined burst is answered with a single write.
+ */
+class LoxServer {
+    static final int OK = 0;
+    static final int SYNTAX_ERROR = 65;
+    static final int RUNTIME_ERROR = 70;
+    static final int LIMIT_EXCEEDED = 75;
+
+    // The file type bits of a Unix file mode, and the type of a socket.
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+
+    // Anything longer is almost certainly not a Lox expression but a client speaking the wrong protocol.
+    private static final int MAX_REQUEST_BYTES = 16 * 1024 * 1024;
+
+    private final LoxEngine engine;
+    private final OutputSink log;
+    // A fresh budget for each request, or null to evaluate without limits.
+    private final Supplier<Budget> budgets;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder connections = new LongAdder();
+    private final long startTime = System.nanoTime();
+
+    LoxServer(LoxEngine engine, OutputSink log, Supplier<Budget> budgets) {
+        this.engine = engine;
+        this.log = log;
+        this.budgets = budgets;
+    }
+
+    /**
+     * Parses an address given on the command line: "unix:path" for a Unix domain socket, otherwise a port on the
+     * loopback interface.
+     */
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+    }
+
+    /**
+     * Accepts and serves connections until the process is stopped. The caller prints {@link #stats()} on the way
+     * out, e.g. from a shutdown hook.
+     */
+    void serve(SocketAddress address) throws IOException {
+        ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress) {
+            // A socket file left behind by a previous run would make bind fail.
+            removeStaleSocket(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+
+        ExecutorService handlers = newThreadPerConnectionExecutor();
+        // Only a socket file we created is ours to remove.
+        boolean bound = false;
+
+        try (server) {
+            server.bind(address);
+            bound = true;
+            log("Listening on " + server.getLocalAddress());
+
+            for (;;) {
+                SocketChannel connection = server.accept();
+                connections.increment();
+                handlers.execute(() -> handle(connection));
+            }
+        } finally {
+            handlers.shutdownNow();
+            if (bound && address instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        }
+    }
+
+    /**
+     * Deletes the file at path if it is a Unix domain socket that no server is listening on any more. Throws if it
+     * is anything else, a mistyped path mustn't cost someone a file, nor a second server take over a live socket.
+     */
+    static void removeStaleSocket(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        if (!isSocket(path)) {
+            throw new IOException(path + " exists and is not a socket");
+        }
+
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            throw new IOException("Another server is already listening on " + path);
+        } catch (ConnectException e) {
+            // Nothing is listening, it was left behind by a server that is gone.
+            Files.delete(path);
+        }
+    }
+
+    private static boolean isSocket(Path path) throws IOException {
+        try {
+            int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException e) {
+            // No "unix" attribute view. Not a regular file, directory or link is the best we can tell.
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+    }
+
+    private void handle(SocketChannel connection) {
+        try (connection) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+            // A connection's requests are evaluated one at a time on this thread, so they can share a table.
+            SymbolTable symbols = new SymbolTable();
+
+            for (;;) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    // The client closed the connection between requests.
+                    return;
+                }
+
+                if (length < 0 || length > MAX_REQUEST_BYTES) {
+                    respond(out, SYNTAX_ERROR, "Request length " + length + " out of range.");
+                    out.flush();
+                    return;
+                }
+
+                if (length == 0) {
+                    respond(out, OK, stats());
+                } else {
+                    byte[] source = new byte[length];
+                    in.readFully(source);
+
+                    long start = System.nanoTime();
+                    try {
+                        evaluate(new String(source, StandardCharsets.UTF_8), symbols, out);
+                    } catch (RuntimeException | StackOverflowError e) {
+                        // Nothing of the response has been written yet, the engine failed before that.
+                        log("Request failed: " + e);
+                        respond(out, RUNTIME_ERROR, "Internal error: " + e);
+                    }
+                    latency.record(System.nanoTime() - start);
+                    if (symbols.full()) {
+                        symbols = new SymbolTable();
+                    }
+                }
+
+                // Pipelined requests that are already buffered get answered in the same write.
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            log("Connection failed: " + e.getMessage());
+        }
+    }
+
+    private void evaluate(String source, SymbolTable symbols, DataOutputStream out) throws IOException {
+        LoxEngine.Result result = engine.eval(source, budgets.get(), symbols);
+
+        if (result.succeeded()) {
+            respond(out, OK, result.output());
+        } else if (result.hadError()) {
+            respond(out, SYNTAX_ERROR, String.join("\n", result.errors()));
+        } else {
+            int status = result.limitExceeded() != null ? LIMIT_EXCEEDED : RUNTIME_ERROR;
+            respond(out, status, String.join("\n", result.errors()));
+        }
+    }
+
+    private static void respond(DataOutputStream out, int status, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(status);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void log(String message) {
+        // The server runs until it is killed, so log lines can't wait for the buffer to fill up.
+        log.printErrorln(message);
+        log.flush();
+    }
+
+    String stats() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return String.format("connections=%d requests/sec=%.1f latency: %s",
+                connections.sum(), latency.count() / seconds, latency.summary());
+    }
+
+    /**
+     * One virtual thread per connection on JDKs that have them (21+), otherwise a cached pool of platform threads.
+     * Looked up reflectively so the server still builds and runs on older JDKs.
+     */
+    private static ExecutorService newThreadPerConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
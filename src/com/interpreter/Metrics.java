@@ -0,0 +1,219 @@
+package com.interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for each phase of an evaluation (scan, parse and evaluate), plus how many
+ * characters, tokens and nodes went through them, so we can see where a slow script spends its time.
+ *
+ * A {@link LoxEngine} only records metrics when it was given an instance of this class, otherwise the phases aren't
+ * timed at all. Every begin* call returns the phase's Flight Recorder event, which has to be handed back to the
+ * matching end* call. Recording is lock-free and safe from any number of threads.
+ */
+class Metrics implements MetricsMXBean {
+    static final String OBJECT_NAME = "com.interpreter:type=Metrics";
+
+    private final LatencyHistogram scan = new LatencyHistogram();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram evaluate = new LatencyHistogram();
+
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+
+    // The engine's cache, or null if it has none.
+    private final ExprCache cache;
+
+    Metrics(ExprCache cache) {
+        this.cache = cache;
+    }
+
+    PhaseEvents.Scan beginScan() {
+        PhaseEvents.Scan event = new PhaseEvents.Scan();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    void endScan(PhaseEvents.Scan event, int sourceChars, int tokenCount) {
+        scan.record(System.nanoTime() - event.startNanos);
+        chars.add(sourceChars);
+        tokens.add(tokenCount);
+
+        event.chars = sourceChars;
+        event.tokens = tokenCount;
+        event.commit();
+    }
+
+    PhaseEvents.Parse beginParse() {
+        PhaseEvents.Parse event = new PhaseEvents.Parse();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    void endParse(PhaseEvents.Parse event, int tokenCount, Expr expression) {
+        parse.record(System.nanoTime() - event.startNanos);
+        int nodeCount = countNodes(expression);
+        nodes.add(nodeCount);
+
+        event.tokens = tokenCount;
+        event.nodes = nodeCount;
+        event.commit();
+    }
+
+    PhaseEvents.Evaluate beginEvaluate() {
+        PhaseEvents.Evaluate event = new PhaseEvents.Evaluate();
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+
+    void endEvaluate(PhaseEvents.Evaluate event, boolean succeeded) {
+        evaluate.record(System.nanoTime() - event.startNanos);
+
+        event.succeeded = succeeded;
+        event.commit();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, so they can be read over JMX (e.g. with jconsole).
+     */
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    private static int countNodes(Expr expression) {
+        if (expression == null) {
+            return 0;
+        }
+
+        // Iterative, the tree may be deeper than the call stack.
+        int count = 0;
+        ArrayDeque<Expr> stack = new ArrayDeque<>();
+        stack.push(expression);
+        while (!stack.isEmpty()) {
+            Expr expr = stack.pop();
+            count++;
+            if (expr instanceof Expr.Binary) {
+                stack.push(((Expr.Binary) expr).left);
+                stack.push(((Expr.Binary) expr).right);
+            } else if (expr instanceof Expr.Grouping) {
+                stack.push(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Unary) {
+                stack.push(((Expr.Unary) expr).right);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getScanCount() {
+        return scan.count();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parse.count();
+    }
+
+    @Override
+    public long getEvaluateCount() {
+        return evaluate.count();
+    }
+
+    @Override
+    public long getScanNanos() {
+        return scan.totalNanos();
+    }
+
+    @Override
+    public long getParseNanos() {
+        return parse.totalNanos();
+    }
+
+    @Override
+    public long getEvaluateNanos() {
+        return evaluate.totalNanos();
+    }
+
+    @Override
+    public long getScanP99Nanos() {
+        return scan.percentile(0.99);
+    }
+
+    @Override
+    public long getParseP99Nanos() {
+        return parse.percentile(0.99);
+    }
+
+    @Override
+    public long getEvaluateP99Nanos() {
+        return evaluate.percentile(0.99);
+    }
+
+    @Override
+    public long getChars() {
+        return chars.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cache == null ? 0 : cache.hitCount();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cache == null ? 0 : cache.missCount();
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        return cache == null ? 0 : cache.evictionCount();
+    }
+
+    @Override
+    public long getCacheSize() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getCacheWeight() {
+        return cache == null ? 0 : cache.weight();
+    }
+
+    @Override
+    public String getSummary() {
+        String summary = phase("scan", scan) + "\n"
+                + phase("parse", parse) + "\n"
+                + phase("evaluate", evaluate) + "\n"
+                + "processed: chars=" + getChars() + " tokens=" + getTokens() + " nodes=" + getNodes();
+        if (cache != null) {
+            summary += "\ncache:    size=" + getCacheSize() + " weight=" + getCacheWeight() + "/" + cache.maximumWeight()
+                    + " hits=" + getCacheHits() + " misses=" + getCacheMisses() + " evictions=" + getCacheEvictions();
+        }
+        return summary;
+    }
+
+    private static String phase(String name, LatencyHistogram histogram) {
+        return String.format("%-9s total=%.1fms %s", name + ":", histogram.totalNanos() / 1e6, histogram.summary());
+    }
+}
@@ -0,0 +1,48 @@
+package com.interpreter;
+
+/**
+ * The JMX view of {@link Metrics}, registered as "com.interpreter:type=Metrics". Times are in nanoseconds.
+ */
+public interface MetricsMXBean {
+    long getScanCount();
+
+    long getParseCount();
+
+    long getEvaluateCount();
+
+    long getScanNanos();
+
+    long getParseNanos();
+
+    long getEvaluateNanos();
+
+    long getScanP99Nanos();
+
+    long getParseP99Nanos();
+
+    long getEvaluateP99Nanos();
+
+    long getChars();
+
+    long getTokens();
+
+    long getNodes();
+
+    /**
+     * Evaluations whose parsed expression came from the cache. Like the other cache counts, 0 without a cache.
+     */
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getCacheEvictions();
+
+    long getCacheSize();
+
+    /**
+     * The total weight of the cached expressions: their number, or their source length for a cache bounded by it.
+     */
+    long getCacheWeight();
+
+    String getSummary();
+}
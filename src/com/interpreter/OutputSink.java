@@ -0,0 +1,77 @@
+package com.interpreter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where the command line writes results and errors.
+ *
+ * Sinks buffer what is written to them and only write it out when the buffer fills up or on {@link #flush()}, instead
+ * of a synchronized, auto-flushed System.out call per line. Callers decide when output has to be visible, e.g. the
+ * REPL flushes once per line while batch runs only flush when they are done.
+ *
+ * Implementations are safe to use from several threads, and write each line of {@link #println} and
+ * {@link #printErrorln} together with its newline, so lines from different threads never run into each other.
+ */
+interface OutputSink extends Closeable {
+    int BUFFER_SIZE = 1 << 16;
+
+    void print(CharSequence text);
+
+    /**
+     * Writes to the error stream, for diagnostics.
+     */
+    void printError(CharSequence text);
+
+    /**
+     * Writes out everything buffered so far.
+     */
+    void flush();
+
+    /**
+     * Writes the line and a newline. Implementations have to override this to make it atomic.
+     */
+    default void println(CharSequence line) {
+        print(line);
+        print("\n");
+    }
+
+    default void printErrorln(CharSequence line) {
+        printError(line);
+        printError("\n");
+    }
+
+    /**
+     * Whether results and errors go to the same stream. If they do, whatever is written to the sink is read in the
+     * order it was written, so writers that hold on to output should keep results and errors in order too.
+     */
+    default boolean sharesStream() {
+        return false;
+    }
+
+    /**
+     * Results to stdout and errors to stderr, through our own buffers rather than System.out and System.err.
+     */
+    static OutputSink console() {
+        return new WriterOutputSink(
+                new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Charset.defaultCharset()), BUFFER_SIZE),
+                new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.err), Charset.defaultCharset()), BUFFER_SIZE));
+    }
+
+    /**
+     * Results and errors, in the order they were written, to a file that is created or truncated.
+     */
+    static OutputSink toFile(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new ChannelOutputSink(channel, Charset.defaultCharset());
+    }
+}
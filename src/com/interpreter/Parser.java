@@ -5,21 +5,39 @@ import java.util.List;
 import static com.interpreter.TokenType.*;
 
 public class Parser {
-    private static class ParseError extends RuntimeException {}
-
     private final List<Token> tokens;
+    private final ErrorReporter reporter;
+    // The budget whose nesting limit applies, or null for none.
+    private final Budget budget;
     private int current = 0;
+    // How many groupings and unary operators we're inside of, each one is a level of recursion.
+    private long depth = 0;
+    private boolean hadError = false;
+    // The token the last error was reported at. One missing piece tends to trip every rule above it on the same
+    // token, and only the first of those errors is worth showing.
+    private Token lastErrorToken = null;
+
+    public Parser(List<Token> tokens, ErrorReporter reporter) {
+        this(tokens, reporter, null);
+    }
 
-    public Parser(List<Token> tokens) {
+    /**
+     * A parser that throws a BudgetExceededError when groupings and unary operators nest deeper than the budget
+     * allows, before they can overflow the stack.
+     */
+    Parser(List<Token> tokens, ErrorReporter reporter, Budget budget) {
         this.tokens = tokens;
+        this.reporter = reporter;
+        this.budget = budget;
     }
 
+    /**
+     * Parses the whole expression, reporting every syntax error on the way instead of stopping at the first. Returns
+     * null if there were any.
+     */
     Expr parse() {
-        try {
-            return expression();
-        } catch (ParseError e) {
-            return null;
-        }
+        Expr expr = expression();
+        return hadError ? null : expr;
     }
 
     private Expr expression() {
@@ -95,7 +113,9 @@ public class Parser {
     private Expr unary() {
         if (match(BANG, MINUS)) {
             Token operator = previous();
+            nest(operator);
             Expr right = unary();
+            depth--;
             return new Expr.Unary(operator, right);
         }
 
@@ -120,12 +140,24 @@ public class Parser {
         }
 
         if (match(LEFT_PAREN)) {
+            nest(previous());
             Expr expr = expression();
+            depth--;
             consume(RIGHT_PAREN, "Expect ')' after expression.");
             return new Expr.Grouping(expr);
         }
 
-        throw error(peek(), "Expect expression.");
+        // Carry on as if there had been an expression here. The token isn't consumed, so e.g. in "(* 2)" the '*'
+        // still gets parsed as an operator and the rest of the line is checked too.
+        error(peek(), "Expect expression.");
+        return new Expr.Literal(null);
+    }
+
+    private void nest(Token token) {
+        depth++;
+        if (budget != null && depth > budget.maxDepth()) {
+            throw budget.tooDeep(token);
+        }
     }
 
     private Token consume(TokenType type, String message) {
@@ -133,13 +165,17 @@ public class Parser {
             return advance();
         }
 
-        throw error(peek(), message);
+        // Carry on as if the token had been there.
+        error(peek(), message);
+        return peek();
     }
 
-
-    private ParseError error(Token token, String message) {
-        Lox.error(token, message);
-        return new ParseError();
+    private void error(Token token, String message) {
+        hadError = true;
+        if (token != lastErrorToken) {
+            reporter.error(token, message);
+            lastErrorToken = token;
+        }
     }
 
     /**
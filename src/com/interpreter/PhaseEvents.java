@@ -0,0 +1,65 @@
+package com.interpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the three phases of an evaluation. They show up under "Lox" in JDK Mission Control
+ * when recording with e.g. -XX:StartFlightRecording, with the duration of each phase and how much it processed.
+ *
+ * Stack traces are turned off, the phase already says where we were and capturing one per event would cost more
+ * than a short phase itself.
+ *
+ * Each event also carries the System.nanoTime() it began at (not recorded by JFR, the field is transient), so
+ * {@link Metrics} can time the phase with the same event object.
+ */
+final class PhaseEvents {
+    private PhaseEvents() {
+    }
+
+    @Name("com.interpreter.Scan")
+    @Label("Scan")
+    @Category("Lox")
+    @StackTrace(false)
+    @Description("LoxScanner turning source text into tokens")
+    static class Scan extends Event {
+        transient long startNanos;
+
+        @Label("Characters")
+        int chars;
+
+        @Label("Tokens")
+        int tokens;
+    }
+
+    @Name("com.interpreter.Parse")
+    @Label("Parse")
+    @Category("Lox")
+    @StackTrace(false)
+    @Description("Parser turning tokens into an expression tree")
+    static class Parse extends Event {
+        transient long startNanos;
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Nodes")
+        int nodes;
+    }
+
+    @Name("com.interpreter.Evaluate")
+    @Label("Evaluate")
+    @Category("Lox")
+    @StackTrace(false)
+    @Description("Interpreter evaluating an expression tree")
+    static class Evaluate extends Event {
+        transient long startNanos;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+}
@@ -0,0 +1,264 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Finds out which subexpressions an evaluation spends its time in.
+ *
+ * Time is attributed to frames. A frame is a kind of node (an operator, a grouping or a kind of literal) on a source
+ * line, reached through a particular chain of enclosing frames, i.e. a calling context tree the way CPU profilers
+ * build one. The same subexpression evaluated again, whether from a cached tree or freshly parsed text, lands in the
+ * same frame, so memory stays bounded by the shape of the code rather than by the number of evaluations.
+ *
+ * For every frame the profiler counts visits and accumulates total time (including children) and self time
+ * (excluding them). Operators are attributed to the line of their token, literals and groupings to the line of the
+ * nearest enclosing operator. The results come out as a hot-spot report sorted by self time, or as collapsed stacks
+ * ("frame;frame;frame value" lines) that flamegraph.pl and speedscope can draw.
+ *
+ * Timing every node costs two clock reads per visit, so the profiler can sample: with sampleEvery = n only every n-th
+ * evaluation is profiled and the others run at full speed.
+ *
+ * The profiler is shared and thread-safe. Each profiled evaluation gets its own {@link Session} from
+ * {@link #begin(Supplier)} to keep track of where it is in the tree.
+ */
+public class Profiler {
+    private final int sampleEvery;
+    private final AtomicLong evaluations = new AtomicLong();
+    private final ConcurrentMap<Long, Frame> roots = new ConcurrentHashMap<>();
+
+    /**
+     * @param sampleEvery profile one in this many evaluations, 1 to profile all of them
+     */
+    public Profiler(int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1: " + sampleEvery);
+        }
+        this.sampleEvery = sampleEvery;
+    }
+
+    /**
+     * Starts profiling one evaluation, or returns null if this one isn't sampled. The lines of the source being
+     * evaluated are only asked for if it is.
+     */
+    Session begin(Supplier<LineTable> lines) {
+        if (evaluations.getAndIncrement() % sampleEvery != 0) {
+            return null;
+        }
+        return new Session(lines.get());
+    }
+
+    private Frame frame(Expr expr, Frame parent, LineTable lines) {
+        int line = line(expr, parent, lines);
+        Long key = ((long) line << 16) | kind(expr);
+        ConcurrentMap<Long, Frame> siblings = parent == null ? roots : parent.children;
+
+        Frame frame = siblings.get(key);
+        if (frame == null) {
+            frame = siblings.computeIfAbsent(key, k -> new Frame(label(expr), line, parent));
+        }
+        return frame;
+    }
+
+    /**
+     * The frames with the most self time, one per line, at most limit of them.
+     */
+    public String report(int limit) {
+        List<Frame> frames = new ArrayList<>();
+        collect(roots, frames);
+        frames.sort(Comparator.comparingLong((Frame frame) -> frame.selfNanos.sum()).reversed());
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Hot spots (%d evaluations, 1 in %d profiled):%n", evaluations.get(), sampleEvery));
+        report.append(String.format("%12s %12s %12s %6s  %s%n", "self ms", "total ms", "visits", "line", "node"));
+
+        for (Frame frame : frames.subList(0, Math.min(limit, frames.size()))) {
+            report.append(String.format("%12.3f %12.3f %12d %6d  %s%n",
+                    frame.selfNanos.sum() / 1e6, frame.totalNanos.sum() / 1e6, frame.visits.sum(), frame.line,
+                    frame.parent == null ? frame.label : frame.label + " in " + frame.parent.label));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Writes one "root;...;frame self-microseconds" line per frame, the collapsed stack format flame graph tools read.
+     */
+    public void writeCollapsedStacks(Writer out) throws IOException {
+        List<Frame> frames = new ArrayList<>();
+        collect(roots, frames);
+
+        for (Frame frame : frames) {
+            long micros = frame.selfNanos.sum() / 1000;
+            if (micros == 0) {
+                continue;
+            }
+
+            out.append(stack(frame)).append(' ').append(Long.toString(micros)).append('\n');
+        }
+    }
+
+    /**
+     * The frames from the root down to this one, separated by ';'. Built on demand rather than stored in every frame,
+     * which would take memory quadratic in the depth of the tree.
+     */
+    private static String stack(Frame frame) {
+        ArrayDeque<Frame> path = new ArrayDeque<>();
+        for (Frame f = frame; f != null; f = f.parent) {
+            path.push(f);
+        }
+
+        StringBuilder stack = new StringBuilder();
+        for (Frame f : path) {
+            if (stack.length() > 0) {
+                stack.append(';');
+            }
+            stack.append(f.label).append(" (line ").append(f.line).append(')');
+        }
+        return stack.toString();
+    }
+
+    private static void collect(ConcurrentMap<Long, Frame> roots, List<Frame> into) {
+        // Iterative, the tree of frames is as deep as the deepest expression.
+        ArrayDeque<Frame> pending = new ArrayDeque<>(roots.values());
+        while (!pending.isEmpty()) {
+            Frame frame = pending.pop();
+            into.add(frame);
+            pending.addAll(frame.children.values());
+        }
+    }
+
+    /**
+     * Tells apart the kinds of node, so e.g. a '+' and a '-' on the same line are different frames.
+     */
+    private static int kind(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            return ((Expr.Binary) expr).operator.type.ordinal();
+        }
+
+        if (expr instanceof Expr.Unary) {
+            return 0x100 | ((Expr.Unary) expr).operator.type.ordinal();
+        }
+
+        if (expr instanceof Expr.Grouping) {
+            return 0x200;
+        }
+
+        Object value = ((Expr.Literal) expr).value;
+        if (value == null) {
+            return 0x300;
+        } else if (value instanceof Boolean) {
+            return 0x301;
+        } else if (value instanceof String) {
+            return 0x302;
+        }
+        return 0x303;
+    }
+
+    private static String label(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            return "'" + ((Expr.Binary) expr).operator.lexeme + "'";
+        }
+
+        if (expr instanceof Expr.Unary) {
+            return "unary '" + ((Expr.Unary) expr).operator.lexeme + "'";
+        }
+
+        if (expr instanceof Expr.Grouping) {
+            return "group";
+        }
+
+        Object value = ((Expr.Literal) expr).value;
+        if (value == null) {
+            return "nil";
+        } else if (value instanceof Boolean) {
+            return "boolean";
+        } else if (value instanceof String) {
+            return "string";
+        }
+        return "number";
+    }
+
+    private static int line(Expr expr, Frame parent, LineTable lines) {
+        if (expr instanceof Expr.Binary) {
+            return lines.line(((Expr.Binary) expr).operator.offset);
+        }
+
+        if (expr instanceof Expr.Unary) {
+            return lines.line(((Expr.Unary) expr).operator.offset);
+        }
+
+        return parent == null ? 1 : parent.line;
+    }
+
+    private static class Frame {
+        final String label;
+        final int line;
+        final Frame parent;
+        final ConcurrentMap<Long, Frame> children = new ConcurrentHashMap<>();
+
+        final LongAdder visits = new LongAdder();
+        final LongAdder selfNanos = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+
+        Frame(String label, int line, Frame parent) {
+            this.label = label;
+            this.line = line;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Tracks the path from the root to the node being evaluated for one evaluation. Not thread-safe, it belongs to
+     * the thread doing the evaluation.
+     */
+    class Session {
+        private final LineTable lines;
+        private Frame[] stack = new Frame[16];
+        private long[] startNanos = new long[16];
+        // Time spent in the children of each frame on the stack, to work out its self time.
+        private long[] childNanos = new long[16];
+        private int depth = 0;
+
+        private Session(LineTable lines) {
+            this.lines = lines;
+        }
+
+        void enter(Expr expr) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+                startNanos = Arrays.copyOf(startNanos, depth * 2);
+                childNanos = Arrays.copyOf(childNanos, depth * 2);
+            }
+
+            stack[depth] = frame(expr, depth == 0 ? null : stack[depth - 1], lines);
+            childNanos[depth] = 0;
+            startNanos[depth] = System.nanoTime();
+            depth++;
+        }
+
+        void exit() {
+            long elapsed = System.nanoTime() - startNanos[--depth];
+            Frame frame = stack[depth];
+            stack[depth] = null;
+
+            frame.visits.increment();
+            frame.totalNanos.add(elapsed);
+            frame.selfNanos.add(elapsed - childNanos[depth]);
+
+            if (depth > 0) {
+                childNanos[depth - 1] += elapsed;
+            }
+        }
+    }
+}
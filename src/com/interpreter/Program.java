@@ -0,0 +1,16 @@
+package com.interpreter;
+
+/**
+ * What the front end makes of a piece of source, and what the engine caches: the parsed expression and, when the
+ * engine compiles, its compiled form.
+ */
+final class Program {
+    final Expr expression;
+    // Null when the engine doesn't compile.
+    final CompiledExpr compiled;
+
+    Program(Expr expression, CompiledExpr compiled) {
+        this.expression = expression;
+        this.compiled = compiled;
+    }
+}
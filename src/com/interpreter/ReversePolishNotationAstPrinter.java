@@ -1,10 +1,48 @@
 package com.interpreter;
 
-public class ReversePolishNotationAstPrinter implements Expr.Visitor<String> {
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Streams an expression into an Appendable in reverse polish notation. Like {@link AstPrinter} it uses an explicit
+ * stack of pending text and sub-expressions rather than recursion and string concatenation.
+ *
+ * A printer is not thread-safe, use one per thread.
+ */
+public class ReversePolishNotationAstPrinter implements Expr.Visitor<Void> {
+    // What is left to print, top first. Each item is either a String to write as is, or an Expr to expand.
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
 
     public String print(Expr expression) {
-        return expression.accept(this);
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(expression, builder);
+        } catch (IOException e) {
+            // A StringBuilder never throws.
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the expression straight to out, e.g. a Writer or an output buffer, without building a String first.
+     */
+    public void print(Expr expression, Appendable out) throws IOException {
+        // Left over if a previous print failed half way through.
+        pending.clear();
+        pending.push(expression);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            if (next instanceof Expr) {
+                ((Expr) next).accept(this);
+            } else {
+                out.append((String) next);
+            }
+        }
     }
+
     /**
      * Prints out the AST using reverse polish notifcation for math operations
      *
@@ -23,43 +61,55 @@ public class ReversePolishNotationAstPrinter implements Expr.Visitor<String> {
      *
      * */
     @Override
-    public String visitBinaryExpr(Expr.Binary expr) {
+    public Void visitBinaryExpr(Expr.Binary expr) {
         // Print left expr
         // Print right expr
         // Print operator
-        return expr.left.accept(this) + " " + expr.right.accept(this) + " " + expr.operator.lexeme;
+        // Pushed in reverse, the top of the stack is printed first.
+        pending.push(expr.operator.lexeme);
+        pending.push(" ");
+        pending.push(expr.right);
+        pending.push(" ");
+        pending.push(expr.left);
+        return null;
     }
 
     @Override
-    public String visitGroupingExpr(Expr.Grouping expr) {
-        // Unwrap the grouping by just calling print on the expression
-        return " " + expr.expression.accept(this);
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        // Unwrap the grouping by just printing the expression
+        pending.push(expr.expression);
+        pending.push(" ");
+        return null;
     }
 
     @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
+    public Void visitLiteralExpr(Expr.Literal expr) {
         if (expr.value == null) {
-            return "nil";
+            pending.push("nil");
         } else {
-            return expr.value.toString();
+            pending.push(expr.value.toString());
         }
+        return null;
     }
 
     @Override
-    public String visitUnaryExpr(Expr.Unary expr) {
+    public Void visitUnaryExpr(Expr.Unary expr) {
         // Pretend
-        return expr.right.accept(this) + " " + expr.operator.lexeme;
+        pending.push(expr.operator.lexeme);
+        pending.push(" ");
+        pending.push(expr.right);
+        return null;
     }
 
     public static void main(String[] args) {
         // (1 + 2)
-        Expr onePlusTwo = new Expr.Grouping(new Expr.Binary(new Expr.Literal(1), new Token(TokenType.PLUS, "+", null, 1), new Expr.Literal(2)));
+        Expr onePlusTwo = new Expr.Grouping(new Expr.Binary(new Expr.Literal(1), new Token(TokenType.PLUS, "+", null, 0), new Expr.Literal(2)));
 
         // (4 - 3)
-        Expr fourMinusThree = new Expr.Grouping(new Expr.Binary(new Expr.Literal(4), new Token(TokenType.MINUS, "-", null, 1), new Expr.Literal(3)));
+        Expr fourMinusThree = new Expr.Grouping(new Expr.Binary(new Expr.Literal(4), new Token(TokenType.MINUS, "-", null, 0), new Expr.Literal(3)));
 
         // (1 + 2) * ( 4 - 3)
-        Expr multiplyOperation = new Expr.Binary(onePlusTwo, new Token(TokenType.STAR, "*", null, 1), fourMinusThree);
+        Expr multiplyOperation = new Expr.Binary(onePlusTwo, new Token(TokenType.STAR, "*", null, 0), fourMinusThree);
 
         System.out.println(new ReversePolishNotationAstPrinter().print(multiplyOperation));
     }
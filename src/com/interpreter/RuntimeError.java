@@ -1,10 +1,17 @@
 package com.interpreter;
 
+/**
+ * An error in the Lox code found while evaluating it.
+ *
+ * These are reported to the user by message and token, never by Java stack trace, so they don't fill one in. Invalid
+ * input is common in batch and server workloads, and walking the stack for every failed expression cost more than
+ * evaluating it.
+ */
 public class RuntimeError extends RuntimeException {
     final Token token;
 
     RuntimeError(Token token, String message) {
-        super(message);
+        super(message, null, false, false);
         this.token = token;
     }
 }
@@ -0,0 +1,193 @@
+package com.interpreter;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.interpreter.TokenType.*;
+
+/**
+ * Interns the lexemes and string literals of scanned source, so each distinct name or string is one String no matter
+ * how often it appears, and gives each of them a small integer id.
+ *
+ * Lookups work directly on a region of the source, so a name that was seen before costs a hash and a compare, not a
+ * substring. Keywords are entered up front with their token type, which makes the table the scanner's keyword lookup
+ * as well. Interned strings that end up as values compare equal by identity in the interpreter.
+ *
+ * It's an open-addressing hash table of ids, with the strings and their hashes kept in arrays indexed by id. Ids are
+ * handed out from 0 in the order strings are first seen and never change.
+ *
+ * The scanner feeds it every name of every input, including server requests, so it has to hold up against input
+ * made to collide. The hash multiplier is picked at random when the class is loaded, so names that collide under
+ * String.hashCode (built from "Aa" and "BB", say) don't collide here. Every table starts as a copy of the keyword
+ * table, which is why the seed is per process rather than per table. And in case collisions are found anyway, a
+ * lookup gives up after {@link #MAX_PROBES} slots: the string isn't interned, and the caller takes a substring
+ * instead. The same goes for new strings once a table holds {@link #SHARED_LIMIT} of them, so not even one huge
+ * source can grow it without bound.
+ *
+ * Not thread-safe. Each scanner has its own unless one is passed in, e.g. to share it across the lines of a batch
+ * chunk, a REPL session or a server connection.
+ */
+final class SymbolTable {
+    private static final String[] KEYWORDS = {
+            "and", "class", "else", "false", "for", "fun", "if", "nil", "or", "print", "return", "super", "this",
+            "true", "var", "while"
+    };
+    private static final TokenType[] KEYWORD_TYPES = {
+            AND, CLASS, ELSE, FALSE, FOR, FUN, IF, NIL, OR, PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE
+    };
+
+    // Odd, so multiplying by it loses no bits.
+    private static final int MULTIPLIER = ThreadLocalRandom.current().nextInt() | 1;
+
+    /**
+     * What {@link #intern} returns for a string it didn't intern.
+     */
+    static final int NOT_INTERNED = -1;
+
+    // How many slots a lookup may look at. At most half full, a table of honest names needs far fewer.
+    private static final int MAX_PROBES = 32;
+
+    // A table with only the keywords, which new tables start out as a copy of. Most scans are short, and copying
+    // three small arrays is much cheaper than entering the keywords again.
+    private static final SymbolTable KEYWORDS_ONLY = new SymbolTable(KEYWORDS);
+
+    /**
+     * How many strings a table holds at most. A table shared by a long-running session should be replaced once it is
+     * full, so the session doesn't keep every string it has ever seen.
+     */
+    static final int SHARED_LIMIT = 1 << 16;
+
+    // id + 1 of the string in each slot, 0 for an empty slot. Always a power of two long and at most half full.
+    private int[] slots;
+    private String[] strings;
+    private int[] hashes;
+    private int size;
+
+    SymbolTable() {
+        slots = KEYWORDS_ONLY.slots.clone();
+        strings = KEYWORDS_ONLY.strings.clone();
+        hashes = KEYWORDS_ONLY.hashes.clone();
+        size = KEYWORDS_ONLY.size;
+    }
+
+    private SymbolTable(String[] keywords) {
+        slots = new int[64];
+        strings = new String[32];
+        hashes = new int[32];
+        for (String keyword : keywords) {
+            intern(keyword, 0, keyword.length());
+        }
+    }
+
+    /**
+     * The id of source[start, end), adding it if it isn't in the table yet. Returns NOT_INTERNED if it isn't in the
+     * table and can't be added, because the table is full or the probe ran too long.
+     */
+    int intern(String source, int start, int end) {
+        int hash = hash(source, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        for (int probes = 0; probes < MAX_PROBES; probes++, slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                if (size >= SHARED_LIMIT) {
+                    return NOT_INTERNED;
+                }
+                return add(source.substring(start, end), hash, slot);
+            }
+
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(strings[id], source, start, end)) {
+                return id;
+            }
+        }
+        // Nothing is ever added further than MAX_PROBES from its slot, so it isn't in the table.
+        return NOT_INTERNED;
+    }
+
+    /**
+     * The canonical instance of source[start, end), or a copy of it if it can't be interned.
+     */
+    String string(String source, int start, int end) {
+        // Not strings[intern(...)], that would index the array from before intern grew it.
+        int id = intern(source, start, end);
+        return id == NOT_INTERNED ? source.substring(start, end) : strings[id];
+    }
+
+    String string(int id) {
+        return strings[id];
+    }
+
+    /**
+     * The token type of a keyword id, or null if the id isn't a keyword or is NOT_INTERNED.
+     */
+    TokenType keyword(int id) {
+        return id >= 0 && id < KEYWORD_TYPES.length ? KEYWORD_TYPES[id] : null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether a session sharing this table should replace it, see {@link #SHARED_LIMIT}.
+     */
+    boolean full() {
+        return size >= SHARED_LIMIT;
+    }
+
+    private int add(String string, int hash, int slot) {
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+
+        int id = size++;
+        strings[id] = string;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            int probes = 0;
+            while (slots[slot] != 0 && ++probes < MAX_PROBES) {
+                slot = (slot + 1) & mask;
+            }
+            // Lookups wouldn't get this far, so an entry that doesn't fit within MAX_PROBES is left out. Its id
+            // and string stay valid, later occurrences just aren't interned.
+            if (slots[slot] == 0) {
+                slots[slot] = id + 1;
+            }
+        }
+    }
+
+    private static boolean matches(String string, String source, int start, int end) {
+        return string.length() == end - start && source.regionMatches(start, string, 0, end - start);
+    }
+
+    private static int hash(String source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = MULTIPLIER * hash + source.charAt(i);
+        }
+        // Spread the bits, the low ones of short names are much alike and they pick the slot. Linear probing needs
+        // them well mixed, runs of neighbouring slots would otherwise hit MAX_PROBES with honest names. This is
+        // MurmurHash3's finalizer.
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
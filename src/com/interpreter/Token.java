@@ -6,13 +6,14 @@ public class Token {
     final String lexeme;
     // A literal refers to the interpreted value of the token. What the language will interpret it as when you run your code.
     final Object literal;
-    final int line;
+    // Where the token starts in the source. The line and column are only worked out from this, with the source's
+    // LineTable, when an error is reported, so tokens don't carry them around.
+    final int offset;
 
-    // TODO: Extend to also include column where the literal starts
-    public Token(TokenType type, String lexeme, Object literal, int line) {
+    public Token(TokenType type, String lexeme, Object literal, int offset) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
-        this.line = line;
+        this.offset = offset;
     }
 }
@@ -0,0 +1,210 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Gets the JIT to compile the scanner, parser and evaluator before the first real request, instead of making the
+ * first few thousand users wait for it.
+ *
+ * A warm-up runs a bundled corpus of expressions, covering every operator, every type and the common syntax and
+ * runtime errors, through every path an evaluation can take: uncached (scanner and parser every time), cached, with a
+ * budget, compiled or interpreted like the engine being warmed, formatting results, errors and syntax trees. It goes
+ * round after round until the time per evaluation stops improving, or the time limit is up.
+ *
+ * It uses engines of its own with the same settings as the one being warmed, so the real engine's cache and metrics
+ * only ever see real requests. The JIT's work is shared by all of them.
+ *
+ * The {@link Report} tells how long it took until evaluations were fast, counted from JVM start, which is what a
+ * restarted server's first callers would see.
+ */
+final class Warmup {
+    /**
+     * The bundled corpus. Besides clean expressions of every kind, a third of it fails, as real input does.
+     */
+    static final String[] CORPUS = {
+            "1",
+            "1.5 + 2.25",
+            "(1 + 2) * 3 - 4 / 5",
+            "-(3 - 10) * -2",
+            "100 / 7 - 14.2857",
+            "((((1 + 2) * (3 + 4)) - ((5 - 6) / (7 + 8))) * 9)",
+            "1 < 2 == 2 >= 1",
+            "3 <= 3 != 4 > 5",
+            "!true == false",
+            "!nil",
+            "!!0",
+            "nil == nil",
+            "nil != false",
+            "\"warm\" + \"up\"",
+            "\"a\" + \"b\" + \"c\" + \"d\" + \"e\" + \"f\"",
+            "\"lox\" == \"lox\"",
+            "\"lox\" != \"java\"",
+            "(\"left\" + \"right\") == \"leftright\"",
+            "1 == \"1\"",
+            "true == 1",
+            "12345.678 * 0.001 + 98765 / 3",
+            "(1 + (2 + (3 + (4 + (5 + (6 + (7 + (8 + (9 + 10)))))))))",
+            "1 - 2 - 3 - 4 - 5 - 6 - 7 - 8 - 9 - 10",
+            "2 * 2 * 2 * 2 * 2 * 2 * 2 * 2 * 2 * 2 > 1000",
+            "  1 +\n  2 *\n  3",
+            // Runtime errors.
+            "-\"string\"",
+            "1 + \"one\"",
+            "\"two\" * 2",
+            "nil - 1",
+            "true > false",
+            "(1 + 2) / \"three\"",
+            "1 + (2 * (3 - -\"4\"))",
+            // Syntax errors.
+            "(1 + 2",
+            "1 +",
+            "* 2",
+            "1 @ 2",
+            "\"unterminated",
+            "(1 + ) * (2 - )",
+            ")",
+    };
+
+    // Rounds whose time per evaluation is within this factor of the best round so far count as fast.
+    private static final double FAST_FACTOR = 1.5;
+    // Rounds are judged in windows of this many. A round takes well under a millisecond once warm, so single rounds
+    // are at the mercy of GC pauses and the scheduler.
+    private static final int WINDOW_ROUNDS = 100;
+    // The JIT is considered done after the first window with at least this many fast rounds.
+    private static final int STEADY_FAST_ROUNDS = 90;
+    // Each expression goes down three paths, see round().
+    private static final int EVALUATIONS_PER_ROUND = CORPUS.length * 3;
+
+    private final LoxEngine uncached;
+    private final LoxEngine cached;
+
+    /**
+     * A warm-up for engines like the given one: compiling or not, instrumented or not.
+     */
+    Warmup(LoxEngine like) {
+        boolean instrumented = like.metrics() != null;
+        this.uncached = new LoxEngine(new LoxEngine.Options()
+                .cacheSize(0).instrumented(instrumented).compiling(like.compiling()));
+        this.cached = new LoxEngine(new LoxEngine.Options()
+                .instrumented(instrumented).compiling(like.compiling()));
+    }
+
+    /**
+     * Warms up until evaluations are fast or the time limit is up, whichever comes first.
+     */
+    Report run(Duration limit) {
+        long start = System.nanoTime();
+        long deadline = start + limit.toNanos();
+        Writer discard = Writer.nullWriter();
+
+        long firstRound = 0;
+        long best = Long.MAX_VALUE;
+        int rounds = 0;
+        boolean steady = false;
+        // JVM uptime when the first steady window started.
+        long fastAt = 0;
+
+        while (!steady && System.nanoTime() < deadline) {
+            long windowStart = uptimeMillis();
+            int fast = 0;
+
+            for (int i = 0; i < WINDOW_ROUNDS; i++) {
+                long roundStart = System.nanoTime();
+                round(discard);
+                long elapsed = System.nanoTime() - roundStart;
+
+                if (rounds++ == 0) {
+                    firstRound = elapsed;
+                }
+                best = Math.min(best, elapsed);
+                if (elapsed <= best * FAST_FACTOR) {
+                    fast++;
+                }
+            }
+
+            if (fast >= STEADY_FAST_ROUNDS) {
+                steady = true;
+                fastAt = windowStart;
+            }
+        }
+
+        return new Report(rounds, (long) rounds * EVALUATIONS_PER_ROUND, System.nanoTime() - start,
+                firstRound / EVALUATIONS_PER_ROUND, best / EVALUATIONS_PER_ROUND, steady ? fastAt : uptimeMillis(),
+                steady);
+    }
+
+    /**
+     * Every expression of the corpus once down each path.
+     */
+    private void round(Writer discard) {
+        try {
+            for (String source : CORPUS) {
+                use(uncached.eval(source), discard);
+                use(cached.eval(source), discard);
+                use(uncached.eval(source, new Budget(Budget.UNLIMITED, Budget.UNLIMITED, Duration.ofSeconds(1))),
+                        discard);
+            }
+        } catch (IOException e) {
+            // The null writer doesn't throw.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats the result the ways the command line and the server do.
+     */
+    private static void use(LoxEngine.Result result, Writer discard) throws IOException {
+        if (result.expression() != null) {
+            new AstPrinter().print(result.expression(), discard);
+        }
+
+        if (result.succeeded()) {
+            discard.write(result.output());
+        } else {
+            discard.write(String.join("\n", result.errors()));
+        }
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * What a warm-up did and how long it took.
+     */
+    static final class Report {
+        final int rounds;
+        final long evaluations;
+        final long nanos;
+        final long firstRoundNanosPerEvaluation;
+        final long bestNanosPerEvaluation;
+        // Milliseconds from JVM start until evaluations were fast, or to the end if they never settled.
+        final long fastAfterMillis;
+        // Whether the time per evaluation settled before the time limit.
+        final boolean steady;
+
+        Report(int rounds, long evaluations, long nanos, long firstRoundNanosPerEvaluation,
+               long bestNanosPerEvaluation, long fastAfterMillis, boolean steady) {
+            this.rounds = rounds;
+            this.evaluations = evaluations;
+            this.nanos = nanos;
+            this.firstRoundNanosPerEvaluation = firstRoundNanosPerEvaluation;
+            this.bestNanosPerEvaluation = bestNanosPerEvaluation;
+            this.fastAfterMillis = fastAfterMillis;
+            this.steady = steady;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "Warm-up: %d evaluations in %d rounds, %d ms%s. Per evaluation: %.1f us in the first round,"
+                            + " %.1f us at best. Fast %d ms after JVM start.",
+                    evaluations, rounds, nanos / 1_000_000, steady ? "" : " (stopped at the time limit)",
+                    firstRoundNanosPerEvaluation / 1e3, bestNanosPerEvaluation / 1e3, fastAfterMillis);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * An {@link OutputSink} over a pair of (buffered) writers, one for results and one for errors.
+ *
+ * The writers belong to the caller, so closing the sink only flushes them. For the console they are the process's
+ * stdout and stderr, which have to stay open for whatever else writes to them before the JVM exits.
+ */
+class WriterOutputSink implements OutputSink {
+    private final Writer out;
+    private final Writer err;
+
+    WriterOutputSink(Writer out, Writer err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    @Override
+    public synchronized void print(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void printError(CharSequence text) {
+        try {
+            // The two streams usually end up on the same terminal, so anything printed before the error has to be
+            // written out first to keep them in order.
+            out.flush();
+            err.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void println(CharSequence line) {
+        // Holding the lock across both writes keeps other threads from writing between the line and its newline.
+        OutputSink.super.println(line);
+    }
+
+    @Override
+    public synchronized void printErrorln(CharSequence line) {
+        OutputSink.super.printErrorln(line);
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            out.flush();
+            err.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+    }
+}
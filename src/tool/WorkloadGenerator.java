@@ -0,0 +1,276 @@
+package tool;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class WorkloadGenerator {
+    /**
+     *
+     * Generates reproducible corpora of Lox expressions, one per line, for load and throughput testing.
+     *
+     * Expressions follow the grammar the Parser accepts (equality, comparison, term, factor, unary, primary) and are
+     * generated by type, so a clean expression never fails at runtime: "-" only gets numbers, "+" gets two numbers or
+     * two strings, and so on. With an error rate, that fraction of the lines is broken on purpose, half of them with a
+     * syntax error and half with a runtime type error.
+     *
+     * The same seed and settings always produce the same corpus.
+     *
+     * To generate 100000 expressions, run: java tool.WorkloadGenerator --count 100000 --out corpus.lox
+     * See usage() for the other settings.
+     */
+
+    private static final String[] BINARY_OPERATORS = {"==", "!=", ">", ">=", "<", "<=", "+", "-", "*", "/"};
+    private static final String[] UNARY_OPERATORS = {"!", "-"};
+    private static final String[] TYPES = {"number", "string", "boolean", "nil"};
+
+    private final Random random;
+    private final int maxDepth;
+    private final Map<String, Integer> operatorWeights;
+    private final Map<String, Integer> typeWeights;
+    private final double errorRate;
+
+    /**
+     * @param seed            where the random sequence starts
+     * @param maxDepth        how deeply operators may nest, 0 for bare literals
+     * @param operatorWeights relative frequency of each operator, e.g. {"+": 4, "*": 1}. Missing operators aren't used,
+     *                        unless no operator for a type is left, then that type only gets literals.
+     * @param typeWeights     relative frequency of each result type: number, string, boolean and nil
+     * @param errorRate       fraction of expressions, between 0 and 1, that fail to parse or to evaluate
+     */
+    public WorkloadGenerator(long seed, int maxDepth, Map<String, Integer> operatorWeights,
+                             Map<String, Integer> typeWeights, double errorRate) {
+        this.random = new Random(seed);
+        this.maxDepth = maxDepth;
+        this.operatorWeights = operatorWeights;
+        this.typeWeights = typeWeights;
+        this.errorRate = errorRate;
+    }
+
+    public static Map<String, Integer> defaultOperatorWeights() {
+        return parseWeights("==:1,!=:1,>:1,>=:1,<:1,<=:1,+:4,-:3,*:3,/:2,!:1,neg:1");
+    }
+
+    public static Map<String, Integer> defaultTypeWeights() {
+        return parseWeights("number:6,string:2,boolean:2,nil:0");
+    }
+
+    /**
+     * Parses "name:weight,name:weight". Unary minus is called "neg" to tell it apart from subtraction.
+     */
+    public static Map<String, Integer> parseWeights(String spec) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected name:weight but got '" + entry + "'");
+            }
+            weights.put(entry.substring(0, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim()));
+        }
+        return weights;
+    }
+
+    public String next() {
+        String type = pick(TYPES, typeWeights);
+        if (type == null) {
+            type = "number";
+        }
+
+        if (random.nextDouble() >= errorRate) {
+            return expression(type, maxDepth);
+        }
+
+        if (random.nextBoolean()) {
+            return syntaxError(expression(type, maxDepth));
+        }
+        return runtimeError();
+    }
+
+    private String expression(String type, int depth) {
+        if (depth > 0 && random.nextInt(4) != 0) {
+            String operator = pick(operatorsFor(type), operatorWeights);
+            if (operator != null) {
+                return operation(type, operator, depth - 1);
+            }
+        }
+
+        if (depth > 0 && random.nextInt(8) == 0) {
+            return "(" + expression(type, depth - 1) + ")";
+        }
+
+        return literal(type);
+    }
+
+    private String operation(String type, String operator, int depth) {
+        switch (operator) {
+            case "neg":
+                return "-" + operand("number", depth);
+            case "!":
+                return "!" + operand(anyType(), depth);
+            case "==":
+            case "!=":
+                String compared = anyType();
+                return expression(compared, depth) + " " + operator + " " + expression(compared, depth);
+            case ">":
+            case ">=":
+            case "<":
+            case "<=":
+                return expression("number", depth) + " " + operator + " " + expression("number", depth);
+            default:
+                // + - * /. Operands with lower precedence need parentheses to stay operands.
+                return operand(type, depth) + " " + operator + " " + operand(type, depth);
+        }
+    }
+
+    /**
+     * An operand of an arithmetic or unary operator, parenthesized so the operators inside can't re-associate.
+     */
+    private String operand(String type, int depth) {
+        String expr = expression(type, depth);
+        return expr.indexOf(' ') >= 0 || expr.startsWith("-") || expr.startsWith("!") ? "(" + expr + ")" : expr;
+    }
+
+    private String[] operatorsFor(String type) {
+        switch (type) {
+            case "number":
+                return new String[]{"+", "-", "*", "/", "neg"};
+            case "string":
+                return new String[]{"+"};
+            case "boolean":
+                return new String[]{"==", "!=", ">", ">=", "<", "<=", "!"};
+            default:
+                return new String[0];
+        }
+    }
+
+    private String literal(String type) {
+        switch (type) {
+            case "number":
+                return random.nextInt(4) == 0
+                        ? random.nextInt(1000) + "." + random.nextInt(100)
+                        : Integer.toString(random.nextInt(1000));
+            case "string":
+                StringBuilder string = new StringBuilder("\"");
+                int length = random.nextInt(12);
+                for (int i = 0; i < length; i++) {
+                    string.append((char) ('a' + random.nextInt(26)));
+                }
+                return string.append('"').toString();
+            case "boolean":
+                return random.nextBoolean() ? "true" : "false";
+            default:
+                return "nil";
+        }
+    }
+
+    private String anyType() {
+        String type = pick(TYPES, typeWeights);
+        return type == null ? "number" : type;
+    }
+
+    /**
+     * Breaks a valid expression: an unclosed parenthesis, a dangling operator or a stray character.
+     */
+    private String syntaxError(String expr) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "(" + expr;
+            case 1:
+                return expr + " " + BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)];
+            default:
+                return expr + " @";
+        }
+    }
+
+    /**
+     * An expression that parses but fails to evaluate, because an operator gets the wrong type.
+     */
+    private String runtimeError() {
+        String number = operand("number", Math.max(0, maxDepth - 1));
+        String string = operand("string", Math.max(0, maxDepth - 1));
+        switch (random.nextInt(3)) {
+            case 0:
+                return number + " + " + string;
+            case 1:
+                return string + " * " + number;
+            default:
+                return UNARY_OPERATORS[1] + string;
+        }
+    }
+
+    private String pick(String[] choices, Map<String, Integer> weights) {
+        int total = 0;
+        for (String choice : choices) {
+            total += weights.getOrDefault(choice, 0);
+        }
+
+        if (total <= 0) {
+            return null;
+        }
+
+        int roll = random.nextInt(total);
+        for (String choice : choices) {
+            roll -= weights.getOrDefault(choice, 0);
+            if (roll < 0) {
+                return choice;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 42;
+        int count = 10_000;
+        int maxDepth = 4;
+        Map<String, Integer> operators = defaultOperatorWeights();
+        Map<String, Integer> types = defaultTypeWeights();
+        double errorRate = 0;
+        String out = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                usage();
+            }
+
+            switch (args[i]) {
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--count" -> count = Integer.parseInt(args[++i]);
+                case "--max-depth" -> maxDepth = Integer.parseInt(args[++i]);
+                case "--operators" -> operators = parseWeights(args[++i]);
+                case "--types" -> types = parseWeights(args[++i]);
+                case "--error-rate" -> errorRate = Double.parseDouble(args[++i]);
+                case "--out" -> out = args[++i];
+                default -> usage();
+            }
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator(seed, maxDepth, operators, types, errorRate);
+        Writer writer = out == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+
+        try (writer) {
+            for (int i = 0; i < count; i++) {
+                writer.write(generator.next());
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: generate_workload [--seed <n>] [--count <n>] [--max-depth <n>]");
+        System.err.println("                         [--operators <op:weight,...>] [--types <type:weight,...>]");
+        System.err.println("                         [--error-rate <0..1>] [--out <file>]");
+        System.err.println();
+        System.err.println("Operators: == != > >= < <= + - * / ! neg (unary minus)");
+        System.err.println("Types:     number string boolean nil");
+        System.exit(64);
+    }
+}
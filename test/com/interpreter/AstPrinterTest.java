@@ -0,0 +1,77 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Both printers, against the exact strings the recursive printers they replaced produced.
+ */
+class AstPrinterTest {
+    private static final Token MINUS = new Token(TokenType.MINUS, "-", null, 0);
+    private static final Token PLUS = new Token(TokenType.PLUS, "+", null, 0);
+    private static final Token STAR = new Token(TokenType.STAR, "*", null, 0);
+
+    private final AstPrinter prefix = new AstPrinter();
+    private final ReversePolishNotationAstPrinter rpn = new ReversePolishNotationAstPrinter();
+
+    @Test
+    void grouping() {
+        Expr expr = new Expr.Grouping(new Expr.Binary(new Expr.Literal(1), PLUS, new Expr.Literal(2)));
+
+        assertEquals("(group (+ 1 2))", prefix.print(expr));
+        // A group is printed as its contents after a space.
+        assertEquals(" 1 2 +", rpn.print(expr));
+    }
+
+    @Test
+    void unary() {
+        Expr expr = new Expr.Unary(MINUS, new Expr.Literal(123));
+
+        assertEquals("(- 123)", prefix.print(expr));
+        assertEquals("123 -", rpn.print(expr));
+    }
+
+    @Test
+    void nilLiteral() {
+        Expr expr = new Expr.Unary(MINUS, new Expr.Literal(null));
+
+        assertEquals("(- nil)", prefix.print(expr));
+        assertEquals("nil -", rpn.print(expr));
+    }
+
+    @Test
+    void nestedGrouping() {
+        Expr expr = new Expr.Grouping(new Expr.Grouping(new Expr.Unary(MINUS, new Expr.Literal(1.5))));
+
+        assertEquals("(group (group (- 1.5)))", prefix.print(expr));
+        assertEquals("  1.5 -", rpn.print(expr));
+    }
+
+    @Test
+    void binaryOfGroupings() {
+        Expr expr = new Expr.Binary(
+                new Expr.Unary(MINUS, new Expr.Literal(123)), STAR, new Expr.Grouping(new Expr.Literal(45.67)));
+        Expr groups = new Expr.Binary(
+                new Expr.Grouping(new Expr.Binary(new Expr.Literal(1), PLUS, new Expr.Literal(2))), STAR,
+                new Expr.Grouping(new Expr.Binary(new Expr.Literal(4), MINUS, new Expr.Literal(3))));
+
+        assertEquals("(* (- 123) (group 45.67))", prefix.print(expr));
+        assertEquals(" 1 2 +  4 3 - *", rpn.print(groups));
+    }
+
+    @Test
+    void printsToAnAppendableLikeToAString() throws IOException {
+        Expr expr = new Expr.Grouping(new Expr.Grouping(new Expr.Literal(null)));
+        StringWriter prefixOut = new StringWriter();
+        StringWriter rpnOut = new StringWriter();
+
+        prefix.print(expr, prefixOut);
+        rpn.print(expr, rpnOut);
+
+        assertEquals("(group (group nil))", prefixOut.toString());
+        assertEquals("  nil", rpnOut.toString());
+    }
+}
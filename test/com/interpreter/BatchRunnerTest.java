@@ -0,0 +1,38 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesErrorsBetweenTheResultsAroundThemToAnOutputFile() throws IOException {
+        Path input = dir.resolve("input.lox");
+        Path output = dir.resolve("output.txt");
+        Files.write(input, List.of("1 + 2", "-\"a\"", "", "2 * 3", "(", "4"), Charset.defaultCharset());
+
+        int status;
+        try (OutputSink sink = OutputSink.toFile(output)) {
+            status = new BatchRunner(new LoxEngine(0), 2).run(input, sink);
+        }
+
+        List<String> lines = Files.readAllLines(output, Charset.defaultCharset());
+        assertEquals(65, status);
+        assertEquals("3", lines.get(0));
+        assertTrue(lines.get(1).startsWith("input line 2: "), lines.get(1));
+        int six = lines.indexOf("6");
+        assertTrue(six > 1, String.join("\n", lines));
+        assertTrue(lines.get(six + 1).startsWith("input line 5: "), lines.get(six + 1));
+        assertTrue(lines.indexOf("4") > six + 1, String.join("\n", lines));
+    }
+}
@@ -0,0 +1,96 @@
+package com.interpreter;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BudgetTest {
+    private static final String DEEP_GROUPING = "(".repeat(20000) + "1" + ")".repeat(20000);
+    private static final String LONG_CHAIN = "1" + " + 1".repeat(20000);
+
+    private final LoxEngine engine = new LoxEngine();
+
+    @Test
+    void cancelledBudgetStopsEvenShortEvaluations() {
+        Budget budget = unlimited();
+        budget.cancel();
+
+        LoxEngine.Result result = engine.eval("1 + 2", budget);
+
+        assertTrue(result.hadRuntimeError());
+        assertEquals(BudgetExceededError.Kind.CANCELLED, result.limitExceeded());
+    }
+
+    @Test
+    void expiredDeadlineStopsEvenShortEvaluations() {
+        Budget budget = new Budget(Budget.UNLIMITED, Budget.UNLIMITED, Duration.ZERO);
+
+        assertEquals(BudgetExceededError.Kind.DEADLINE, engine.eval("1 + 2", budget).limitExceeded());
+    }
+
+    @Test
+    void parserStopsAtNestingLimit() {
+        Budget budget = new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 100, null);
+
+        LoxEngine.Result result = new LoxEngine(0).eval(DEEP_GROUPING, budget);
+
+        assertTrue(result.hadRuntimeError());
+        assertEquals(BudgetExceededError.Kind.NESTING_DEPTH, result.limitExceeded());
+    }
+
+    @Test
+    void cachedProgramsAreCheckedAgainstEachCallersLimit() {
+        String source = "(".repeat(200) + "1" + ")".repeat(200);
+
+        LoxEngine.Result limited = engine.eval(source, new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 100, null));
+        LoxEngine.Result unlimited = engine.eval(source);
+        LoxEngine.Result roomy = engine.eval(source, new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 1000, null));
+
+        assertEquals(BudgetExceededError.Kind.NESTING_DEPTH, limited.limitExceeded());
+        assertTrue(unlimited.succeeded());
+        assertTrue(roomy.succeeded());
+        // One caller's limit didn't keep the program out of the cache.
+        assertEquals(2, engine.cache().hitCount());
+    }
+
+    @Test
+    void interpreterStopsAtNestingLimit() {
+        Budget budget = new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 100, null);
+
+        assertEquals(BudgetExceededError.Kind.NESTING_DEPTH, engine.eval(LONG_CHAIN, budget).limitExceeded());
+    }
+
+    @Test
+    void withinNestingLimit() {
+        Budget budget = new Budget(Budget.UNLIMITED, Budget.UNLIMITED, 100, null);
+
+        LoxEngine.Result result = engine.eval("-(1 + (2 * -(3 - 4)))", budget);
+
+        assertTrue(result.succeeded());
+        assertEquals("-3", result.output());
+    }
+
+    @Test
+    void stackOverflowIsReportedAsNestingDepth() {
+        assertEquals(BudgetExceededError.Kind.NESTING_DEPTH, engine.eval(DEEP_GROUPING).limitExceeded());
+        assertEquals(BudgetExceededError.Kind.NESTING_DEPTH, engine.eval(LONG_CHAIN + " + 1".repeat(200000))
+                .limitExceeded());
+    }
+
+    @Test
+    void typeErrorsAreNotLimits() {
+        LoxEngine.Result result = engine.eval("1 + \"one\"", unlimited());
+
+        assertTrue(result.hadRuntimeError());
+        assertFalse(result.succeeded());
+        assertNull(result.limitExceeded());
+    }
+
+    private static Budget unlimited() {
+        return new Budget(Budget.UNLIMITED, Budget.UNLIMITED, null);
+    }
+}
@@ -0,0 +1,231 @@
+package com.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExprCacheTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void hitReturnsCachedProgramWithoutLoading() {
+        ExprCache cache = ExprCache.ofSize(10);
+        Loader loader = new Loader();
+
+        Program first = cache.get("1 + 2", loader);
+        Program second = cache.get("1 + 2\n", loader);
+
+        assertSame(first, second);
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        ExprCache cache = ExprCache.ofSize(2);
+        Loader loader = new Loader();
+
+        cache.get("a", loader);
+        cache.get("b", loader);
+        // Makes "b" the least recently used.
+        cache.get("a", loader);
+        cache.get("c", loader);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+
+        int calls = loader.calls.get();
+        cache.get("a", loader);
+        cache.get("c", loader);
+        assertEquals(calls, loader.calls.get());
+        cache.get("b", loader);
+        assertEquals(calls + 1, loader.calls.get());
+    }
+
+    @Test
+    void evictsBySourceLength() {
+        ExprCache cache = ExprCache.ofSourceLength(10);
+        Loader loader = new Loader();
+
+        cache.get("1 + 2", loader);
+        cache.get("3 + 4", loader);
+        assertEquals(10, cache.weight());
+
+        cache.get("5", loader);
+        assertEquals(6, cache.weight());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void doesNotCacheEntriesHeavierThanTheMaximum() {
+        ExprCache cache = ExprCache.ofSourceLength(4);
+        Loader loader = new Loader();
+
+        cache.get("1", loader);
+        cache.get("1 + 2", loader);
+
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    void doesNotCacheFailedLoads() {
+        ExprCache cache = ExprCache.ofSize(10);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(cache.get("(", key -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get("(", key -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void keepsRecentlyHitEntriesUnderConcurrentHits() throws Exception {
+        ExprCache cache = ExprCache.ofSize(100);
+        Loader loader = new Loader();
+        cache.get("hot", loader);
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(threads.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        cache.get("hot", loader);
+                        cache.get("cold " + thread + " " + i, loader);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(100, cache.weight());
+        // Every load was put, and everything put but the last 100 was evicted.
+        int calls = loader.calls.get();
+        assertEquals(calls - 100, cache.evictionCount());
+        cache.get("hot", loader);
+        assertEquals(calls, loader.calls.get());
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        ExprCache cache = ExprCache.ofSize(10);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Program program = new Program(new Expr.Literal(1.0), null);
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Program>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(threads.submit(() -> {
+                    started.countDown();
+                    return cache.get("1", key -> {
+                        calls.incrementAndGet();
+                        await(release);
+                        return program;
+                    });
+                }));
+            }
+            started.await(10, TimeUnit.SECONDS);
+            // Give every thread time to miss and queue up behind the first load.
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Program> future : futures) {
+                assertSame(program, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(THREADS, cache.hitCount() + cache.missCount());
+    }
+
+    @Test
+    void waitersGetTheLoadersException() throws Exception {
+        ExprCache cache = ExprCache.ofSize(10);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Program>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(threads.submit(() -> {
+                    started.countDown();
+                    return cache.get("1", key -> {
+                        await(release);
+                        throw new IllegalStateException("parser blew up");
+                    });
+                }));
+            }
+            started.await(10, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Program> future : futures) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.missCount() >= 1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loads every key as a literal and counts how often it was called.
+     */
+    private static class Loader implements Function<String, Program> {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Program apply(String key) {
+            calls.incrementAndGet();
+            return new Program(new Expr.Literal(key), null);
+        }
+    }
+}
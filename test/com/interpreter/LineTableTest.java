@@ -0,0 +1,72 @@
+package com.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineTableTest {
+    @Test
+    void resolvesLinesAndColumns() {
+        LineTable lines = LineTable.of("1 +\n  2 *\r\n3");
+
+        assertEquals(1, lines.line(0));
+        assertEquals(2, lines.line(6));
+        assertEquals(3, lines.column(6));
+        assertEquals(3, lines.line(11));
+        assertEquals("  2 *", lines.text(2));
+    }
+
+    @Test
+    void quotesShortLinesWhole() {
+        assertEquals("    1 | 1 + (2 * )\n"
+                + "      |          ^", snippet("1 + (2 * )", 9));
+    }
+
+    @Test
+    void keepsTabsInFrontOfTheCaret() {
+        assertEquals("    1 | \t-\"a\"\n"
+                + "      | \t^", snippet("\t-\"a\"", 1));
+    }
+
+    @Test
+    void clipsLongLinesAroundTheOffset() {
+        String source = "1 + ".repeat(10000) + "\"x\"";
+        int offset = 20000;
+
+        String snippet = snippet(source, offset);
+        String[] lines = snippet.split("\n");
+
+        assertTrue(snippet.length() < 2 * (LineTable.SNIPPET_WIDTH + 20), snippet);
+        assertTrue(lines[0].startsWith("    1 | ...") && lines[0].endsWith("..."), lines[0]);
+        // The caret is under the quoted character at the offset.
+        int caret = lines[1].indexOf('^');
+        assertEquals(source.charAt(offset), lines[0].charAt(caret));
+    }
+
+    @Test
+    void clipsOnlyTheEndNearTheStartOfALine() {
+        String source = "-\"a\"" + " + 1".repeat(100);
+
+        String[] lines = snippet(source, 0).split("\n");
+
+        assertEquals("    1 | " + source.substring(0, LineTable.SNIPPET_WIDTH) + "...", lines[0]);
+        assertEquals("      | ^", lines[1]);
+    }
+
+    @Test
+    void clipsOnlyTheStartNearTheEndOfALine() {
+        String source = "1 + ".repeat(100) + "nil";
+
+        String[] lines = snippet(source, source.length()).split("\n");
+
+        assertEquals("    1 | ..." + source.substring(source.length() - LineTable.SNIPPET_WIDTH), lines[0]);
+        assertEquals(lines[0].length(), lines[1].indexOf('^'));
+    }
+
+    private static String snippet(String source, int offset) {
+        StringBuilder out = new StringBuilder();
+        LineTable.of(source).appendSnippet(offset, out);
+        return out.toString();
+    }
+}
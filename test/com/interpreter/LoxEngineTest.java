@@ -0,0 +1,48 @@
+package com.interpreter;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoxEngineTest {
+    @Test
+    void reportsErrorsAtTheEndOfTheSourceTheSameWithAndWithoutCache() {
+        String source = "1 +\n\n";
+
+        List<String> cached = new LoxEngine().eval(source).errors();
+        List<String> uncached = new LoxEngine(0).eval(source).errors();
+
+        assertEquals(uncached, cached);
+        assertTrue(cached.get(0).startsWith("[line 3] Error at end"), cached.get(0));
+    }
+
+    @Test
+    void cachesAcrossTrailingWhitespace() {
+        LoxEngine engine = new LoxEngine();
+
+        assertEquals("3", engine.eval("1 + 2\n").output());
+        assertEquals("3", engine.eval("1 + 2").output());
+        assertEquals(1, engine.cache().hitCount());
+    }
+
+    @Test
+    void optionsPickTheCache() {
+        assertEquals(LoxEngine.Options.DEFAULT_CACHE_SIZE, new LoxEngine().cache().maximumWeight());
+        assertNull(new LoxEngine(new LoxEngine.Options().cacheSize(0)).cache());
+        assertEquals(100, new LoxEngine(new LoxEngine.Options().cacheChars(100)).cache().maximumWeight());
+        // The last bound set wins.
+        assertEquals(10, new LoxEngine(new LoxEngine.Options().cacheChars(100).cacheSize(10)).cache().maximumWeight());
+    }
+
+    @Test
+    void compilingEngineEvaluatesLikeTheInterpreter() {
+        LoxEngine compiling = new LoxEngine(new LoxEngine.Options().compiling(true));
+
+        assertEquals("-3", compiling.eval("-(1 + (2 * -(3 - 4)))").output());
+        assertEquals("-3", compiling.eval("-(1 + (2 * -(3 - 4)))").output());
+        assertTrue(compiling.compiling());
+    }
+}
@@ -0,0 +1,57 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OutputSinkTest {
+    @Test
+    void closingAWriterSinkFlushesButLeavesTheWritersOpen() throws IOException {
+        TrackingWriter out = new TrackingWriter();
+        TrackingWriter err = new TrackingWriter();
+        OutputSink sink = new WriterOutputSink(out, err);
+
+        sink.println("3");
+        sink.printErrorln("error");
+        sink.close();
+
+        assertEquals("3\n", out.toString());
+        assertEquals("error\n", err.toString());
+        assertFalse(out.closed);
+        assertFalse(err.closed);
+    }
+
+    /**
+     * Holds what was flushed to it and remembers whether it was closed.
+     */
+    private static class TrackingWriter extends Writer {
+        private final StringBuilder pending = new StringBuilder();
+        private final StringWriter flushed = new StringWriter();
+        boolean closed = false;
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            pending.append(chars, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            flushed.append(pending);
+            pending.setLength(0);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public String toString() {
+            return flushed.toString();
+        }
+    }
+}
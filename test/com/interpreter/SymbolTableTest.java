@@ -0,0 +1,74 @@
+package com.interpreter;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SymbolTableTest {
+    @Test
+    void internsEachStringOnce() {
+        SymbolTable symbols = new SymbolTable();
+        String source = "name other name";
+
+        int first = symbols.intern(source, 0, 4);
+        int second = symbols.intern(source, 11, 15);
+
+        assertEquals(first, second);
+        assertNotEquals(first, symbols.intern(source, 5, 10));
+        assertSame(symbols.string(first), symbols.string(source, 11, 15));
+        assertNull(symbols.keyword(first));
+    }
+
+    @Test
+    void knowsTheKeywords() {
+        SymbolTable symbols = new SymbolTable();
+
+        assertEquals(TokenType.WHILE, symbols.keyword(symbols.intern("while", 0, 5)));
+        assertNull(symbols.keyword(SymbolTable.NOT_INTERNED));
+    }
+
+    @Test
+    void stopsInterningWhenFull() {
+        SymbolTable symbols = new SymbolTable();
+        String last = null;
+        for (int i = 0; !symbols.full(); i++) {
+            String name = "name" + i;
+            // The odd name may still run past MAX_PROBES with an unlucky multiplier.
+            if (symbols.intern(name, 0, name.length()) != SymbolTable.NOT_INTERNED) {
+                last = name;
+            }
+        }
+
+        assertEquals(SymbolTable.NOT_INTERNED, symbols.intern("another", 0, 7));
+        assertEquals("another", symbols.string("another", 0, 7));
+        assertEquals(SymbolTable.SHARED_LIMIT, symbols.size());
+        // What is in the table is still found.
+        assertEquals(SymbolTable.SHARED_LIMIT - 1, symbols.intern(last, 0, last.length()));
+    }
+
+    @Test
+    void scansNamesWithCollidingStringHashCodesQuickly() {
+        // 2^15 names of 15 "Aa"/"BB" blocks, which all have the same String.hashCode.
+        StringBuilder source = new StringBuilder();
+        int names = 1 << 15;
+        for (int i = 0; i < names; i++) {
+            for (int bit = 0; bit < 15; bit++) {
+                source.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+            }
+            source.append(' ');
+        }
+        String text = source.toString();
+
+        List<Token> tokens = assertTimeoutPreemptively(Duration.ofSeconds(2),
+                () -> new LoxScanner(text, new Diagnostics(text)).scanTokens());
+
+        assertEquals(names + 1, tokens.size());
+        assertEquals(text.substring(31 * 5, 31 * 5 + 30), tokens.get(5).lexeme);
+    }
+}